@@ -0,0 +1,66 @@
+package com.testautomation.agent.benchmarks;
+
+import com.testautomation.agent.model.CorpusSpec;
+import com.testautomation.agent.model.FeatureStep;
+import com.testautomation.agent.parser.FeatureFileParser;
+import com.testautomation.agent.utils.FeatureCorpusGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Synthetic corpora for the benchmarks, produced by the same generator as --selftest-scale
+ */
+public final class BenchmarkCorpus {
+
+    public static final long SEED = 42;
+
+    private BenchmarkCorpus() {}
+
+    public static CorpusSpec spec(int featureFiles, int scenariosPerFile) {
+        CorpusSpec spec = new CorpusSpec();
+        spec.setFeatureFiles(featureFiles);
+        spec.setScenariosPerFile(scenariosPerFile);
+        spec.setSeed(SEED);
+        return spec;
+    }
+
+    /**
+     * Feature file contents keyed by file name
+     */
+    public static Map<String, String> featureFiles(int featureFiles, int scenariosPerFile) {
+        Map<String, String> contents = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry :
+                new FeatureCorpusGenerator(spec(featureFiles, scenariosPerFile)).generate().entrySet()) {
+            contents.put(new File(entry.getKey()).getName(), entry.getValue());
+        }
+        return contents;
+    }
+
+    /**
+     * Content of a single feature file with the given number of scenarios
+     */
+    public static String featureFile(int scenarios) {
+        return new FeatureCorpusGenerator(spec(1, scenarios)).generateFeatureFile(0);
+    }
+
+    /**
+     * Parsed corpus keyed by file name, as the agent produces it
+     */
+    public static Map<String, List<FeatureStep>> parse(int featureFiles, int scenariosPerFile) {
+        FeatureFileParser parser = new FeatureFileParser();
+        Map<String, List<FeatureStep>> allSteps = new HashMap<>();
+        try {
+            for (Map.Entry<String, String> entry : featureFiles(featureFiles, scenariosPerFile).entrySet()) {
+                allSteps.put(entry.getKey(),
+                    parser.parseFeatureFile(new StringReader(entry.getValue()), entry.getKey()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return allSteps;
+    }
+}
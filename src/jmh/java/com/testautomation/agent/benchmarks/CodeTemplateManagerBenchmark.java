@@ -0,0 +1,71 @@
+package com.testautomation.agent.benchmarks;
+
+import com.testautomation.agent.utils.CodeTemplateManager;
+import com.testautomation.agent.utils.CompiledTemplate;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Placeholder substitution in the bundled step body templates, compiling on every call
+ * (processTemplate) and rendering a template compiled once
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CodeTemplateManagerBenchmark {
+
+    @Param({"web", "api", "mobile"})
+    public String template;
+
+    private CodeTemplateManager templateManager;
+    private String templateContent;
+    private CompiledTemplate compiledTemplate;
+    private StringBuilder rendered;
+    private Map<String, String> variables;
+
+    @Setup
+    public void setUp() throws IOException {
+        templateManager = new CodeTemplateManager();
+        try (InputStream input = getClass().getResourceAsStream("/templates/" + template + ".template")) {
+            templateContent = IOUtils.toString(input, StandardCharsets.UTF_8);
+        }
+        compiledTemplate = CompiledTemplate.compile(templateContent, CodeTemplateManager.TEMPLATE_VARIABLES);
+        rendered = new StringBuilder();
+
+        // Same variables the generator passes for a step
+        variables = new HashMap<>();
+        variables.put("methodName", "iNavigateToThePage");
+        variables.put("stepText", "I navigate to the \"login\" page");
+        variables.put("stepType", "WEB");
+        variables.put("parameters", "login");
+        variables.put("loggerStatement",
+            "logger.info(\"Executing web step: {}\", \"I navigate to the \"login\" page\");");
+    }
+
+    @Benchmark
+    public String processTemplate() {
+        return templateManager.processTemplate(templateContent, variables);
+    }
+
+    @Benchmark
+    public String renderCompiled() {
+        return compiledTemplate.render(variables);
+    }
+
+    @Benchmark
+    public int renderCompiledReused() {
+        rendered.setLength(0);
+        compiledTemplate.render(variables, rendered);
+        return rendered.length();
+    }
+}
@@ -0,0 +1,56 @@
+package com.testautomation.agent.benchmarks;
+
+import com.testautomation.agent.model.FeatureStep;
+import com.testautomation.agent.model.NearDuplicateCluster;
+import com.testautomation.agent.utils.DuplicateStepHandler;
+import com.testautomation.agent.utils.NearDuplicateDetector;
+import com.testautomation.agent.utils.StepOccurrenceIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Duplicate detection, near-duplicate detection and step organization over a whole corpus
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DuplicateStepHandlerBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int featureFiles;
+
+    @Param("10")
+    public int scenariosPerFile;
+
+    private DuplicateStepHandler duplicateHandler;
+    private Map<String, List<FeatureStep>> allSteps;
+    private StepOccurrenceIndex index;
+
+    @Setup
+    public void setUp() {
+        duplicateHandler = new DuplicateStepHandler();
+        allSteps = BenchmarkCorpus.parse(featureFiles, scenariosPerFile);
+        index = StepOccurrenceIndex.build(allSteps);
+    }
+
+    @Benchmark
+    public Map<FeatureStep, List<String>> detectDuplicates() {
+        return duplicateHandler.detectDuplicates(allSteps);
+    }
+
+    @Benchmark
+    public Map<String, List<FeatureStep>> organizeSteps() {
+        return duplicateHandler.organizeSteps(allSteps);
+    }
+
+    @Benchmark
+    public List<NearDuplicateCluster> detectNearDuplicates() {
+        return duplicateHandler.detectNearDuplicates(index, NearDuplicateDetector.DEFAULT_THRESHOLD);
+    }
+}
@@ -0,0 +1,70 @@
+package com.testautomation.agent.benchmarks;
+
+import com.testautomation.agent.model.FeatureStep;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FeatureStep hashCode and equals, as exercised by every HashMap and HashSet keyed by steps
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FeatureStepBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int steps;
+
+    private FeatureStep[] stepArray;
+    private FeatureStep[] equalCopies;
+
+    @Setup
+    public void setUp() {
+        int files = steps / 50 + 1;
+        List<FeatureStep> allSteps = new ArrayList<>();
+        for (List<FeatureStep> fileSteps : BenchmarkCorpus.parse(files, 10).values()) {
+            allSteps.addAll(fileSteps);
+        }
+        stepArray = allSteps.subList(0, Math.min(steps, allSteps.size())).toArray(new FeatureStep[0]);
+
+        // Distinct instances with the same content, so equals cannot short-circuit on identity
+        equalCopies = new FeatureStep[stepArray.length];
+        for (int i = 0; i < stepArray.length; i++) {
+            FeatureStep step = stepArray[i];
+            equalCopies[i] = new FeatureStep(step.getKeyword(), step.getText(), step.getParameters(),
+                step.getFeatureFile(), step.getLineNumber());
+        }
+    }
+
+    @Benchmark
+    public void hashCodes(Blackhole blackhole) {
+        for (FeatureStep step : stepArray) {
+            blackhole.consume(step.hashCode());
+        }
+    }
+
+    @Benchmark
+    public void equalsEqualSteps(Blackhole blackhole) {
+        for (int i = 0; i < stepArray.length; i++) {
+            blackhole.consume(stepArray[i].equals(equalCopies[i]));
+        }
+    }
+
+    @Benchmark
+    public void equalsNeighbourSteps(Blackhole blackhole) {
+        for (int i = 1; i < stepArray.length; i++) {
+            blackhole.consume(stepArray[i].equals(stepArray[i - 1]));
+        }
+    }
+
+    @Benchmark
+    public Set<FeatureStep> buildHashSet() {
+        return new HashSet<>(Arrays.asList(stepArray));
+    }
+}
@@ -0,0 +1,55 @@
+package com.testautomation.agent.benchmarks;
+
+import com.testautomation.agent.model.FeatureStep;
+import com.testautomation.agent.parser.FeatureFileParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a single feature file, from memory and from disk
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int scenarios;
+
+    private FeatureFileParser parser;
+    private String content;
+    private File featureFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        parser = new FeatureFileParser();
+        content = BenchmarkCorpus.featureFile(scenarios);
+        featureFile = File.createTempFile("benchmark", ".feature");
+        Files.write(featureFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(featureFile.toPath());
+    }
+
+    @Benchmark
+    public List<FeatureStep> parseFromReader() throws IOException {
+        return parser.parseFeatureFile(new StringReader(content), "benchmark.feature");
+    }
+
+    @Benchmark
+    public List<FeatureStep> parseFromFile() throws IOException {
+        return parser.parseFeatureFile(featureFile.getPath());
+    }
+}
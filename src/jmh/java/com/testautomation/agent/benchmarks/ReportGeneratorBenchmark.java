@@ -0,0 +1,86 @@
+package com.testautomation.agent.benchmarks;
+
+import com.testautomation.agent.generator.StepDefinitionGenerator;
+import com.testautomation.agent.model.FeatureStep;
+import com.testautomation.agent.model.GenerationConfig;
+import com.testautomation.agent.model.StepDefinition;
+import com.testautomation.agent.utils.DuplicateStepHandler;
+import com.testautomation.agent.utils.ReportGenerator;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each report format over a whole corpus, written to a temporary directory
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportGeneratorBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int featureFiles;
+
+    @Param("10")
+    public int scenariosPerFile;
+
+    private ReportGenerator reportGenerator;
+    private Map<String, List<FeatureStep>> allSteps;
+    private Map<String, List<StepDefinition>> generatedDefinitions;
+    private Map<FeatureStep, List<String>> duplicates;
+    private File outputDirectory;
+    private PrintStream originalOut;
+
+    @Setup
+    public void setUp() throws IOException {
+        reportGenerator = new ReportGenerator();
+        allSteps = BenchmarkCorpus.parse(featureFiles, scenariosPerFile);
+        duplicates = new DuplicateStepHandler().detectDuplicates(allSteps);
+        generatedDefinitions = new StepDefinitionGenerator().generateStepDefinitions(allSteps, new GenerationConfig());
+        outputDirectory = Files.createTempDirectory("benchmark-reports").toFile();
+
+        // The console report would otherwise flood the benchmark output
+        originalOut = System.out;
+        System.setOut(new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.setOut(originalOut);
+        FileUtils.deleteDirectory(outputDirectory);
+    }
+
+    @Benchmark
+    public void htmlReport() throws IOException {
+        reportGenerator.generateHtmlReport(allSteps, generatedDefinitions, duplicates,
+            new File(outputDirectory, "report.html").getPath());
+    }
+
+    @Benchmark
+    public void jsonReport() throws IOException {
+        reportGenerator.generateJsonReport(allSteps, generatedDefinitions, duplicates,
+            new File(outputDirectory, "report.json").getPath());
+    }
+
+    @Benchmark
+    public void xmlReport() throws IOException {
+        reportGenerator.generateXmlReport(allSteps, generatedDefinitions, duplicates,
+            new File(outputDirectory, "report.xml").getPath());
+    }
+
+    @Benchmark
+    public void consoleReport() {
+        reportGenerator.generateConsoleReport(allSteps, generatedDefinitions, duplicates);
+    }
+}
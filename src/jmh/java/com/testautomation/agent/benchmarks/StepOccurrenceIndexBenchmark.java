@@ -0,0 +1,41 @@
+package com.testautomation.agent.benchmarks;
+
+import com.testautomation.agent.model.FeatureStep;
+import com.testautomation.agent.utils.StepOccurrenceIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serial and sharded parallel builds of the step occurrence index. Compare the scores
+ * for threads=1 with higher thread counts to see how the sharded build scales, e.g.
+ * -p steps=4000000 -p threads=1,2,4,8,16,32 on a machine with enough cores and heap.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class StepOccurrenceIndexBenchmark {
+
+    @Param({"1000000", "4000000"})
+    public int steps;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int threads;
+
+    private Map<String, List<FeatureStep>> allSteps;
+
+    @Setup
+    public void setUp() {
+        allSteps = BenchmarkCorpus.parse(steps / 50 + 1, 10);
+    }
+
+    @Benchmark
+    public StepOccurrenceIndex build() {
+        return StepOccurrenceIndex.build(allSteps, threads);
+    }
+}
@@ -0,0 +1,59 @@
+package com.testautomation.agent.generator;
+
+import com.testautomation.agent.benchmarks.BenchmarkCorpus;
+import com.testautomation.agent.model.FeatureStep;
+import com.testautomation.agent.model.GenerationConfig;
+import com.testautomation.agent.model.StepDefinition;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Step definition generation. Lives in the generator package so it can reach
+ * the package-private convertToRegex directly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StepDefinitionGeneratorBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int featureFiles;
+
+    @Param("10")
+    public int scenariosPerFile;
+
+    private StepDefinitionGenerator generator;
+    private GenerationConfig config;
+    private Map<String, List<FeatureStep>> allSteps;
+    private FeatureStep[] stepArray;
+
+    @Setup
+    public void setUp() {
+        generator = new StepDefinitionGenerator();
+        config = new GenerationConfig();
+        allSteps = BenchmarkCorpus.parse(featureFiles, scenariosPerFile);
+
+        List<FeatureStep> steps = new ArrayList<>();
+        allSteps.values().forEach(steps::addAll);
+        stepArray = steps.toArray(new FeatureStep[0]);
+    }
+
+    @Benchmark
+    public void convertToRegex(Blackhole blackhole) {
+        for (FeatureStep step : stepArray) {
+            blackhole.consume(generator.convertToRegex(step.getText(), step.getParameterSpans()));
+        }
+    }
+
+    @Benchmark
+    public Map<String, List<StepDefinition>> generateStepDefinitions() throws IOException {
+        return generator.generateStepDefinitions(allSteps, config);
+    }
+}
@@ -0,0 +1,203 @@
+package com.testautomation.agent;
+
+import com.testautomation.agent.generator.StepDefinitionGenerator;
+import com.testautomation.agent.model.FeatureStep;
+import com.testautomation.agent.model.GenerationConfig;
+import com.testautomation.agent.model.StepDefinition;
+import com.testautomation.agent.model.WriteSummary;
+import com.testautomation.agent.parser.FeatureFileParser;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watch mode: keeps parsed steps in memory, listens for feature file changes and
+ * regenerates step definitions after each burst of changes. Only changed feature
+ * files are reparsed; unchanged step definition files are not rewritten.
+ */
+public class FeatureFileWatcher {
+    private static final Logger logger = LoggerFactory.getLogger(FeatureFileWatcher.class);
+
+    private static final String FEATURE_EXTENSION = ".feature";
+
+    private final FeatureFileParser parser;
+    private final StepDefinitionGenerator generator;
+    private final GenerationConfig config;
+    private final Path featureDirectory;
+
+    // Parsed steps per feature file, sorted by path so regeneration is deterministic
+    private final Map<Path, List<FeatureStep>> stepsByFile = new TreeMap<>();
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+
+    public FeatureFileWatcher(FeatureFileParser parser, StepDefinitionGenerator generator,
+                              String featureDirectory, GenerationConfig config) {
+        this.parser = parser;
+        this.generator = generator;
+        this.config = config;
+        this.featureDirectory = Paths.get(featureDirectory).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Build once, then watch until the thread is interrupted
+     */
+    public void run() throws IOException {
+        if (!Files.isDirectory(featureDirectory)) {
+            throw new IOException("Directory does not exist: " + featureDirectory);
+        }
+
+        try (WatchService watchService = featureDirectory.getFileSystem().newWatchService()) {
+            registerTree(watchService, featureDirectory);
+
+            long start = System.nanoTime();
+            rescan();
+            regenerate(stepsByFile.size(), start);
+            System.out.println("Watching " + featureDirectory + " for changes (Ctrl+C to stop)");
+
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<Path> changedFiles = new TreeSet<>();
+                boolean overflow = awaitChanges(watchService, changedFiles);
+
+                start = System.nanoTime();
+                if (overflow) {
+                    logger.warn("Watch events were lost, rescanning {}", featureDirectory);
+                    registerTree(watchService, featureDirectory);
+                    rescan();
+                    regenerate(stepsByFile.size(), start);
+                } else if (!changedFiles.isEmpty()) {
+                    applyChanges(changedFiles);
+                    regenerate(changedFiles.size(), start);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.info("Watch mode stopped");
+        } catch (ClosedWatchServiceException e) {
+            logger.info("Watch mode stopped");
+        }
+    }
+
+    /**
+     * Block for the first event, then keep collecting until the directory has been quiet
+     * for the debounce interval. Returns true when the event queue overflowed.
+     */
+    private boolean awaitChanges(WatchService watchService, Set<Path> changedFiles)
+            throws InterruptedException, IOException {
+        boolean overflow = false;
+        WatchKey key = watchService.take();
+
+        while (key != null) {
+            Path directory = watchedDirectories.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                    overflow = true;
+                    continue;
+                }
+
+                Path changed = directory.resolve((Path) event.context());
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                    // New directories are watched too, and any feature files already in them count as changed
+                    registerTree(watchService, changed);
+                    for (File featureFile : FileUtils.listFiles(changed.toFile(), new String[]{"feature"}, true)) {
+                        changedFiles.add(featureFile.toPath().toAbsolutePath().normalize());
+                    }
+                } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE && isTracked(changed)) {
+                    // A deleted directory takes its feature files with it
+                    changedFiles.add(changed);
+                } else if (changed.toString().endsWith(FEATURE_EXTENSION)) {
+                    changedFiles.add(changed);
+                }
+            }
+            if (!key.reset()) {
+                watchedDirectories.remove(key);
+            }
+
+            key = watchService.poll(config.getWatchDebounceMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        return overflow;
+    }
+
+    /**
+     * Reparse changed feature files and drop deleted ones
+     */
+    private void applyChanges(Set<Path> changedPaths) throws IOException {
+        List<File> toParse = new ArrayList<>();
+
+        for (Path changed : changedPaths) {
+            if (Files.isRegularFile(changed) && changed.toString().endsWith(FEATURE_EXTENSION)) {
+                toParse.add(changed.toFile());
+            } else if (!Files.exists(changed)) {
+                stepsByFile.keySet().removeIf(path -> path.startsWith(changed));
+            }
+        }
+
+        for (File featureFile : toParse) {
+            stepsByFile.remove(featureFile.toPath());
+        }
+        for (Map.Entry<File, List<FeatureStep>> entry :
+                parser.parseFeatureFiles(toParse, config.getParseThreads(), null).entrySet()) {
+            stepsByFile.put(entry.getKey().toPath(), entry.getValue());
+        }
+    }
+
+    /**
+     * Parse every feature file under the watched directory
+     */
+    private void rescan() throws IOException {
+        Collection<File> featureFiles = FileUtils.listFiles(featureDirectory.toFile(), new String[]{"feature"}, true);
+
+        stepsByFile.clear();
+        for (Map.Entry<File, List<FeatureStep>> entry :
+                parser.parseFeatureFiles(featureFiles, config.getParseThreads(), null).entrySet()) {
+            stepsByFile.put(entry.getKey().toPath().toAbsolutePath().normalize(), entry.getValue());
+        }
+    }
+
+    /**
+     * Generate from the in-memory steps and write the classes whose content changed
+     */
+    private void regenerate(int changedFiles, long startNanos) {
+        try {
+            Map<String, List<FeatureStep>> allSteps = new HashMap<>();
+            for (Map.Entry<Path, List<FeatureStep>> entry : stepsByFile.entrySet()) {
+                allSteps.put(entry.getKey().getFileName().toString(), entry.getValue());
+            }
+
+            Map<String, List<StepDefinition>> generatedDefinitions =
+                generator.generateStepDefinitions(allSteps, config);
+            WriteSummary writeSummary = generator.writeStepDefinitions(generatedDefinitions, config);
+
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            System.out.println(String.format("[watch] %d feature file(s) processed in %d ms: %d written, %d unchanged",
+                changedFiles, elapsedMillis, writeSummary.getWrittenFiles(), writeSummary.getUnchangedFiles()));
+        } catch (IOException e) {
+            logger.error("Error regenerating step definitions", e);
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+
+    private void registerTree(WatchService watchService, Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                WatchKey key = directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+                watchedDirectories.put(key, directory.toAbsolutePath().normalize());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private boolean isTracked(Path path) {
+        return stepsByFile.keySet().stream().anyMatch(file -> file.startsWith(path));
+    }
+}
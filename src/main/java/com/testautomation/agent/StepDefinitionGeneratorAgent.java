@@ -1,19 +1,32 @@
 package com.testautomation.agent;
 
+import com.testautomation.agent.model.CorpusSpec;
 import com.testautomation.agent.model.GenerationConfig;
+import com.testautomation.agent.model.NearDuplicateCluster;
+import com.testautomation.agent.model.ReportModel;
+import com.testautomation.agent.model.WriteSummary;
 import com.testautomation.agent.parser.FeatureFileParser;
 import com.testautomation.agent.generator.StepDefinitionGenerator;
 import com.testautomation.agent.utils.DuplicateStepHandler;
 import com.testautomation.agent.utils.ReportGenerator;
 import com.testautomation.agent.utils.CodeTemplateManager;
+import com.testautomation.agent.utils.FeatureCorpusGenerator;
+import com.testautomation.agent.utils.FlightRecording;
+import com.testautomation.agent.utils.GenerationManifest;
+import com.testautomation.agent.utils.MetricsRecorder;
+import com.testautomation.agent.utils.NearDuplicateDetector;
+import com.testautomation.agent.utils.StepOccurrenceIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main agent class for generating step definitions from Cucumber feature files
@@ -127,11 +140,28 @@ public class StepDefinitionGeneratorAgent {
      * Run in command line mode
      */
     public void runCommandLineMode(String[] args) {
+        FlightRecording recording = null;
         try {
             GenerationConfig config = parseCommandLineArgs(args);
             String featureDir = args[0];
             
             System.out.println("=== Cucumber Step Definition Generator Agent ===");
+            
+            if (config.getJfrFile() != null) {
+                recording = FlightRecording.start(config.getJfrFile());
+                System.out.println("Flight recording to: " + recording.getDestination());
+            }
+            
+            if (config.isWatchMode()) {
+                new FeatureFileWatcher(parser, generator, featureDir, config).run();
+                return;
+            }
+            
+            if (config.getSelfTestScale() > 0) {
+                runScaleSelfTest(featureDir, config);
+                return;
+            }
+            
             System.out.println("Processing feature files from: " + featureDir);
             
             processFeatureFiles(featureDir, config);
@@ -142,7 +172,36 @@ public class StepDefinitionGeneratorAgent {
             logger.error("Error during command line mode", e);
             System.err.println("Error: " + e.getMessage());
             printUsage();
+        } finally {
+            if (recording != null) {
+                recording.close();
+            }
+        }
+    }
+    
+    /**
+     * Generate a synthetic corpus under the work directory and run the full pipeline on it
+     */
+    private void runScaleSelfTest(String workDirectory, GenerationConfig config) throws IOException {
+        CorpusSpec spec = new CorpusSpec();
+        spec.setFeatureFiles(config.getSelfTestScale());
+        spec.setSeed(config.getSelfTestSeed());
+        
+        File corpusDirectory = new File(workDirectory, "features");
+        if (config.getOutputDirectory().equals(new GenerationConfig().getOutputDirectory())) {
+            config.setOutputDirectory(new File(workDirectory, "stepdefinitions").getPath());
         }
+        
+        System.out.println("Scale self-test: " + spec);
+        long start = System.nanoTime();
+        new FeatureCorpusGenerator(spec).writeTo(corpusDirectory);
+        System.out.println(String.format("Generated %d feature files in %d ms: %s",
+            spec.getFeatureFiles(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), corpusDirectory));
+        
+        start = System.nanoTime();
+        processFeatureFiles(corpusDirectory.getPath(), config);
+        System.out.println(String.format("Scale self-test processed %d feature files in %d ms",
+            spec.getFeatureFiles(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
     }
     
     /**
@@ -151,9 +210,29 @@ public class StepDefinitionGeneratorAgent {
     public void processFeatureFiles(String featureDirectory, GenerationConfig config) throws IOException {
         logger.info("Starting step definition generation process");
         
+        MetricsRecorder metrics = new MetricsRecorder();
+        parser.setMetricsRecorder(metrics);
+        reportGenerator.setMetricsRecorder(metrics);
+        String runTimestamp = java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        
+        // Load the manifest of the previous run for incremental generation
+        GenerationManifest manifest = config.isIncremental() ?
+            GenerationManifest.load(config.getOutputDirectory()) : null;
+        
         // Parse feature files
         logger.info("Parsing feature files from: {}", featureDirectory);
-        Map<String, List<com.testautomation.agent.model.FeatureStep>> allSteps = parser.parseFeatureFiles(featureDirectory);
+        Map<String, List<com.testautomation.agent.model.FeatureStep>> allSteps;
+        StepOccurrenceIndex compactIndex = null;
+        try (MetricsRecorder.Phase phase = metrics.startPhase("parse")) {
+            if (config.isCompactStorage()) {
+                compactIndex = StepOccurrenceIndex.of(
+                    parser.parseFeatureFilesCompact(featureDirectory, config.getParseThreads(), manifest));
+                allSteps = compactIndex.getAllSteps();
+            } else {
+                allSteps = parser.parseFeatureFiles(featureDirectory, config.getParseThreads(), manifest);
+            }
+            phase.setItems(allSteps.size(), "feature files");
+        }
         
         if (allSteps.isEmpty()) {
             logger.warn("No feature files found in directory: {}", featureDirectory);
@@ -161,71 +240,174 @@ public class StepDefinitionGeneratorAgent {
             return;
         }
         
+        // Index step occurrences once for duplicate detection, generation and reports
+        StepOccurrenceIndex index;
+        try (MetricsRecorder.Phase phase = metrics.startPhase("index")) {
+            index = compactIndex != null ? compactIndex :
+                StepOccurrenceIndex.build(allSteps, config.getIndexThreads(), metrics);
+            phase.setItems(index.getUniqueStepCount(), "unique steps");
+        }
+        
         // Detect duplicates
         logger.info("Detecting duplicate steps");
-        Map<com.testautomation.agent.model.FeatureStep, java.util.List<String>> duplicates = 
-            duplicateHandler.detectDuplicates(allSteps);
+        Map<com.testautomation.agent.model.FeatureStep, java.util.List<String>> duplicates;
+        try (MetricsRecorder.Phase phase = metrics.startPhase("detectDuplicates")) {
+            duplicates = duplicateHandler.detectDuplicates(index);
+            phase.setItems(duplicates.size(), "duplicates");
+        }
         
         // Organize steps
         logger.info("Organizing steps by type");
-        Map<String, java.util.List<com.testautomation.agent.model.FeatureStep>> organizedSteps = 
-            duplicateHandler.organizeSteps(allSteps);
+        Map<String, java.util.List<com.testautomation.agent.model.FeatureStep>> organizedSteps;
+        try (MetricsRecorder.Phase phase = metrics.startPhase("organize")) {
+            organizedSteps = duplicateHandler.organizeSteps(index);
+            phase.setItems(countItems(organizedSteps), "steps");
+        }
         
         // Generate step definitions
         logger.info("Generating step definitions");
-        Map<String, java.util.List<com.testautomation.agent.model.StepDefinition>> generatedDefinitions = 
-            generator.generateStepDefinitions(allSteps, config);
+        Map<String, java.util.List<com.testautomation.agent.model.StepDefinition>> generatedDefinitions;
+        try (MetricsRecorder.Phase phase = metrics.startPhase("generate")) {
+            generatedDefinitions = generator.generateStepDefinitions(index, config);
+            phase.setItems(countItems(generatedDefinitions), "definitions");
+        }
+        
+        // Detect near-duplicate steps and optionally merge them
+        List<NearDuplicateCluster> nearDuplicates = null;
+        if (config.getNearDuplicateThreshold() > 0) {
+            logger.info("Detecting near-duplicate steps");
+            try (MetricsRecorder.Phase phase = metrics.startPhase("nearDuplicates")) {
+                nearDuplicates = duplicateHandler.detectNearDuplicates(index, config.getNearDuplicateThreshold());
+                if (config.isMergeNearDuplicates()) {
+                    generator.mergeNearDuplicates(generatedDefinitions, nearDuplicates);
+                }
+                phase.setItems(nearDuplicates.size(), "clusters");
+            }
+        }
         
         // Write step definition files
         logger.info("Writing step definition files");
-        generator.writeStepDefinitions(generatedDefinitions, config);
+        WriteSummary writeSummary;
+        try (MetricsRecorder.Phase phase = metrics.startPhase("write")) {
+            writeSummary = generator.writeStepDefinitions(generatedDefinitions, config, manifest);
+            if (manifest != null) {
+                manifest.save();
+            }
+            phase.setItems(writeSummary.getWrittenFiles(), "files written");
+        }
+        System.out.println(String.format("Step definition files: %d written, %d unchanged",
+            writeSummary.getWrittenFiles(), writeSummary.getUnchangedFiles()));
+        
+        if (manifest != null) {
+            System.out.println(String.format("Incremental generation: parsed %d of %d feature files",
+                manifest.getParsedFeatureCount(),
+                manifest.getParsedFeatureCount() + manifest.getReusedFeatureCount()));
+        }
+        
+        // Build the report model once for the report files and the console report
+        ReportModel reportModel;
+        try (MetricsRecorder.Phase phase = metrics.startPhase("reportModel")) {
+            reportModel = reportGenerator.buildReportModel(index, generatedDefinitions);
+            phase.setItems(reportModel.getAllSteps().size(), "files");
+        }
         
         // Generate reports
         if (config.isGenerateReports()) {
             logger.info("Generating reports");
-            generateReports(allSteps, generatedDefinitions, duplicates, config);
+            try (MetricsRecorder.Phase phase = metrics.startPhase("reports")) {
+                phase.setItems(generateReports(reportModel, nearDuplicates, config, runTimestamp), "reports");
+            }
         }
         
         // Display console report
-        reportGenerator.generateConsoleReport(allSteps, generatedDefinitions, duplicates);
+        try (MetricsRecorder.Phase phase = metrics.startPhase("consoleReport")) {
+            reportGenerator.generateConsoleReport(reportModel);
+            phase.setItems(index.getTotalStepCount(), "steps");
+        }
         
         // Display organization suggestions
         if (!duplicates.isEmpty()) {
             System.out.println("\n" + duplicateHandler.suggestOrganizationStrategy(duplicates));
         }
+        if (nearDuplicates != null) {
+            System.out.println("\n" + duplicateHandler.generateNearDuplicateReport(nearDuplicates));
+        }
+        
+        // Export metrics next to the reports
+        if (config.isGenerateReports() || config.isProfile()) {
+            String metricsPath = config.getOutputDirectory() + "/reports/step_definition_metrics_" + runTimestamp + ".json";
+            metrics.writeJson(new File(metricsPath), runTimestamp);
+            System.out.println("Metrics: " + metricsPath);
+        }
+        if (config.isProfile()) {
+            System.out.println("\n" + metrics.formatSummary());
+        }
         
         logger.info("Step definition generation process completed");
     }
     
+    private static long countItems(Map<?, ? extends java.util.Collection<?>> itemsByKey) {
+        long count = 0;
+        for (java.util.Collection<?> items : itemsByKey.values()) {
+            count += items.size();
+        }
+        return count;
+    }
+    
     /**
-     * Generate various reports
+     * Generate various reports, returning the number of reports written
      */
-    private void generateReports(Map<String, java.util.List<com.testautomation.agent.model.FeatureStep>> allSteps,
-                               Map<String, java.util.List<com.testautomation.agent.model.StepDefinition>> generatedDefinitions,
-                               Map<com.testautomation.agent.model.FeatureStep, java.util.List<String>> duplicates,
-                               GenerationConfig config) throws IOException {
+    private int generateReports(ReportModel reportModel, List<NearDuplicateCluster> nearDuplicates,
+                               GenerationConfig config, String timestamp) throws IOException {
         
         String reportDir = config.getOutputDirectory() + "/reports";
         new File(reportDir).mkdirs();
+        reportGenerator.setCompactJson(config.isCompactJsonReport());
+        reportGenerator.setJsonFields(config.getJsonReportFields());
+        reportGenerator.setHtmlPageSize(config.getHtmlPageSize());
         
-        String timestamp = java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        
-        // Generate HTML report
-        String htmlReportPath = reportDir + "/step_definition_report_" + timestamp + ".html";
-        reportGenerator.generateHtmlReport(allSteps, generatedDefinitions, duplicates, htmlReportPath);
-        
-        // Generate JSON report
-        String jsonReportPath = reportDir + "/step_definition_report_" + timestamp + ".json";
-        reportGenerator.generateJsonReport(allSteps, generatedDefinitions, duplicates, jsonReportPath);
-        
-        // Generate XML report
-        String xmlReportPath = reportDir + "/step_definition_report_" + timestamp + ".xml";
-        reportGenerator.generateXmlReport(allSteps, generatedDefinitions, duplicates, xmlReportPath);
+        // Render the selected formats concurrently from the shared model
+        List<String> formats = config.getReportFormats() != null ?
+            config.getReportFormats() : ReportGenerator.loadConfiguredFormats();
+        Map<String, String> reportPaths = new LinkedHashMap<>();
+        for (String format : formats) {
+            reportPaths.put(format, reportDir + "/step_definition_report_" + timestamp + "." + format.toLowerCase() +
+                (config.isCompressReports() && !format.equals("HTML") ? ReportGenerator.COMPRESSED_SUFFIX : ""));
+        }
+        reportGenerator.generateReports(reportModel, reportPaths);
         
         System.out.println("Reports generated:");
-        System.out.println("- HTML: " + htmlReportPath);
-        System.out.println("- JSON: " + jsonReportPath);
-        System.out.println("- XML: " + xmlReportPath);
+        for (Map.Entry<String, String> entry : reportPaths.entrySet()) {
+            System.out.println("- " + entry.getKey() + ": " + describeReportFile(entry.getValue()));
+        }
+        
+        // Generate near-duplicate report
+        if (nearDuplicates != null) {
+            String nearDuplicateReportPath = reportDir + "/near_duplicate_report_" + timestamp + ".json" +
+                (config.isCompressReports() ? ReportGenerator.COMPRESSED_SUFFIX : "");
+            reportGenerator.generateNearDuplicateReport(nearDuplicates, nearDuplicateReportPath);
+            System.out.println("- Near-duplicates: " + describeReportFile(nearDuplicateReportPath));
+            return reportPaths.size() + 1;
+        }
+        return reportPaths.size();
+    }
+    
+    /**
+     * Path of a report file, with its compression ratio when it is compressed
+     */
+    private String describeReportFile(String reportPath) {
+        if (!reportPath.endsWith(ReportGenerator.COMPRESSED_SUFFIX)) {
+            return reportPath;
+        }
+        long uncompressed = reportGenerator.getUncompressedSize(reportPath);
+        long compressed = new File(reportPath).length();
+        return String.format("%s (%s -> %s, %.1fx smaller)", reportPath, formatSize(uncompressed),
+            formatSize(compressed), compressed > 0 ? (double) uncompressed / compressed : 0);
+    }
+    
+    private static String formatSize(long bytes) {
+        return bytes < 1024 * 1024 ? String.format("%.1f KB", bytes / 1024.0) :
+            String.format("%.1f MB", bytes / (1024.0 * 1024.0));
     }
     
     /**
@@ -243,6 +425,48 @@ public class StepDefinitionGeneratorAgent {
                 config.setBasePackage(arg.substring(10));
             } else if (arg.startsWith("--template-dir=")) {
                 config.setTemplateDirectory(arg.substring(15));
+            } else if (arg.startsWith("--parse-threads=")) {
+                config.setParseThreads(parsePositiveInt("--parse-threads", arg.substring(16)));
+            } else if (arg.startsWith("--index-threads=")) {
+                config.setIndexThreads(parsePositiveInt("--index-threads", arg.substring(16)));
+            } else if (arg.startsWith("--generation-threads=")) {
+                config.setGenerationThreads(parsePositiveInt("--generation-threads", arg.substring(21)));
+            } else if (arg.equals("--compact")) {
+                config.setCompactStorage(true);
+            } else if (arg.equals("--incremental")) {
+                config.setIncremental(true);
+            } else if (arg.equals("--force-write")) {
+                config.setSkipUnchangedWrites(false);
+            } else if (arg.equals("--watch")) {
+                config.setWatchMode(true);
+            } else if (arg.startsWith("--watch-debounce=")) {
+                config.setWatchDebounceMillis(parsePositiveInt("--watch-debounce", arg.substring(17)));
+            } else if (arg.startsWith("--selftest-scale=")) {
+                config.setSelfTestScale(parsePositiveInt("--selftest-scale", arg.substring(17)));
+            } else if (arg.startsWith("--selftest-seed=")) {
+                config.setSelfTestSeed(parseLong("--selftest-seed", arg.substring(16)));
+            } else if (arg.startsWith("--jfr=")) {
+                config.setJfrFile(arg.substring(6));
+            } else if (arg.equals("--near-duplicates")) {
+                config.setNearDuplicateThreshold(NearDuplicateDetector.DEFAULT_THRESHOLD);
+            } else if (arg.startsWith("--near-duplicates=")) {
+                config.setNearDuplicateThreshold(parseSimilarity("--near-duplicates", arg.substring(18)));
+            } else if (arg.equals("--merge-near-duplicates")) {
+                config.setMergeNearDuplicates(true);
+            } else if (arg.equals("--json-compact")) {
+                config.setCompactJsonReport(true);
+            } else if (arg.startsWith("--json-fields=")) {
+                config.setJsonReportFields(parseJsonFields("--json-fields", arg.substring(14)));
+            } else if (arg.equals("--html-paged")) {
+                config.setHtmlPageSize(ReportGenerator.DEFAULT_HTML_PAGE_SIZE);
+            } else if (arg.startsWith("--html-paged=")) {
+                config.setHtmlPageSize(parsePositiveInt("--html-paged", arg.substring(13)));
+            } else if (arg.equals("--compress-reports")) {
+                config.setCompressReports(true);
+            } else if (arg.startsWith("--report-formats=")) {
+                config.setReportFormats(parseReportFormats("--report-formats", arg.substring(17)));
+            } else if (arg.equals("--profile")) {
+                config.setProfile(true);
             } else if (arg.equals("--no-web")) {
                 config.setGeneratePageObjectMethods(false);
             } else if (arg.equals("--no-api")) {
@@ -259,9 +483,87 @@ public class StepDefinitionGeneratorAgent {
             }
         }
         
+        if (config.isMergeNearDuplicates() && config.getNearDuplicateThreshold() == 0) {
+            config.setNearDuplicateThreshold(NearDuplicateDetector.DEFAULT_THRESHOLD);
+        }
+        
         return config;
     }
     
+    /**
+     * Parse a similarity option value between 0 (exclusive) and 1
+     */
+    private double parseSimilarity(String option, String value) {
+        try {
+            double parsed = Double.parseDouble(value.trim());
+            if (parsed > 0 && parsed <= 1) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // fall through to the error below
+        }
+        throw new IllegalArgumentException("Invalid value for " + option + ": " + value);
+    }
+    
+    /**
+     * Parse a comma-separated list of JSON report sections and fields
+     */
+    private List<String> parseJsonFields(String option, String value) {
+        List<String> fields = new ArrayList<>();
+        for (String field : value.split(",")) {
+            field = field.trim();
+            if (!ReportGenerator.JSON_SECTIONS.contains(field) && !ReportGenerator.JSON_STEP_FIELDS.contains(field) &&
+                !ReportGenerator.JSON_DEFINITION_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Invalid value for " + option + ": " + field);
+            }
+            fields.add(field);
+        }
+        return fields;
+    }
+    
+    /**
+     * Parse a comma-separated list of report formats
+     */
+    private List<String> parseReportFormats(String option, String value) {
+        List<String> formats = new ArrayList<>();
+        for (String format : value.split(",")) {
+            format = format.trim().toUpperCase();
+            if (!ReportGenerator.REPORT_FORMATS.contains(format)) {
+                throw new IllegalArgumentException("Invalid value for " + option + ": " + format);
+            }
+            if (!formats.contains(format)) {
+                formats.add(format);
+            }
+        }
+        return formats;
+    }
+    
+    /**
+     * Parse a positive integer option value
+     */
+    private int parsePositiveInt(String option, String value) {
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // fall through to the error below
+        }
+        throw new IllegalArgumentException("Invalid value for " + option + ": " + value);
+    }
+    
+    /**
+     * Parse a numeric option value that may be negative
+     */
+    private long parseLong(String option, String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + option + ": " + value);
+        }
+    }
+    
     /**
      * Print usage information
      */
@@ -272,6 +574,29 @@ public class StepDefinitionGeneratorAgent {
         System.out.println("  --output=<dir>           Output directory for step definitions");
         System.out.println("  --package=<package>      Base package name");
         System.out.println("  --template-dir=<dir>     Custom templates directory");
+        System.out.println("  --parse-threads=<n>      Number of threads used to parse feature files (default: 1)");
+        System.out.println("  --index-threads=<n>      Number of threads used to index steps for duplicate detection (default: 1)");
+        System.out.println("  --generation-threads=<n> Number of threads used to generate step definitions (default: 1)");
+        System.out.println("  --compact                Keep parsed steps in compact storage to reduce memory on very large corpora");
+        System.out.println("  --incremental            Only reparse changed feature files and rewrite changed classes");
+        System.out.println("  --force-write            Rewrite step definition files even when unchanged");
+        System.out.println("  --watch                  Keep running and regenerate when feature files change");
+        System.out.println("  --watch-debounce=<ms>    Quiet period before regenerating in watch mode (default: 200)");
+        System.out.println("  --selftest-scale=<n>     Generate <n> synthetic feature files under <feature-directory>");
+        System.out.println("                           and run the full pipeline on them");
+        System.out.println("  --selftest-seed=<n>      Seed of the synthetic corpus (default: 42)");
+        System.out.println("  --near-duplicates[=<s>]  Report clusters of nearly identical steps with similarity >= <s>");
+        System.out.println("                           (0-1, default: 0.6)");
+        System.out.println("  --merge-near-duplicates  Merge each near-duplicate cluster into one step definition");
+        System.out.println("  --json-compact           Write JSON reports without indentation");
+        System.out.println("  --json-fields=<list>     Comma-separated sections and fields to include in the JSON report");
+        System.out.println("  --html-paged[=<n>]       Write the HTML report as an index page that loads <n> rows per page");
+        System.out.println("                           from data files on demand (default: 500)");
+        System.out.println("  --compress-reports       Write JSON and XML reports gzip-compressed (.json.gz, .xml.gz)");
+        System.out.println("  --report-formats=<list>  Comma-separated report files to write: HTML, JSON, XML");
+        System.out.println("                           (default: reportFormats in agent-config.yaml)");
+        System.out.println("  --profile                Print time, CPU and allocations per phase and export metrics JSON");
+        System.out.println("  --jfr=<file>             Record a Java Flight Recorder profile of the run to <file>");
         System.out.println("  --no-web                 Skip web step definitions");
         System.out.println("  --no-api                 Skip API step definitions");
         System.out.println("  --no-mobile              Skip mobile step definitions");
@@ -283,6 +608,10 @@ public class StepDefinitionGeneratorAgent {
         System.out.println("  java -jar cucumber-step-generator.jar src/test/resources/features");
         System.out.println("  java -jar cucumber-step-generator.jar features --output=stepdefs --package=com.company.steps");
         System.out.println("  java -jar cucumber-step-generator.jar features --no-mobile --no-reports");
+        System.out.println("  java -jar cucumber-step-generator.jar features --parse-threads=8");
+        System.out.println("  java -jar cucumber-step-generator.jar features --watch");
+        System.out.println("  java -jar cucumber-step-generator.jar features --near-duplicates=0.7 --merge-near-duplicates");
+        System.out.println("  java -jar cucumber-step-generator.jar /tmp/selftest --selftest-scale=20000 --parse-threads=8");
     }
     
     /**
@@ -2,11 +2,13 @@ package com.testautomation.agent.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.testautomation.agent.utils.StepTypeClassifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -50,6 +52,20 @@ public class AgentConfig {
         return yamlMapper.readValue(configFile, Map.class);
     }
     
+    /**
+     * Load configuration from a YAML resource on the classpath
+     */
+    public Map<String, Object> loadFromClasspath(String resourceName) throws IOException {
+        try (InputStream input = AgentConfig.class.getClassLoader().getResourceAsStream(resourceName)) {
+            if (input == null) {
+                logger.warn("Configuration resource not found: {}", resourceName);
+                return getDefaultConfig();
+            }
+            
+            return yamlMapper.readValue(input, Map.class);
+        }
+    }
+    
     /**
      * Save configuration to JSON file
      */
@@ -86,6 +102,7 @@ public class AgentConfig {
         
         // Organization settings
         config.put("organizeByStepType", true);
+        config.put(StepTypeClassifier.CONFIG_KEY, StepTypeClassifier.defaultKeywords());
         config.put("organizeByFeature", false);
         config.put("namingConvention", "CAMEL_CASE");
         
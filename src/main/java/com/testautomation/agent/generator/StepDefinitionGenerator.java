@@ -2,16 +2,35 @@ package com.testautomation.agent.generator;
 
 import com.testautomation.agent.model.FeatureStep;
 import com.testautomation.agent.model.GenerationConfig;
+import com.testautomation.agent.model.NearDuplicateCluster;
 import com.testautomation.agent.model.StepDefinition;
+import com.testautomation.agent.model.StepParameter;
+import com.testautomation.agent.model.WriteSummary;
 import com.testautomation.agent.utils.CodeTemplateManager;
+import com.testautomation.agent.utils.GenerationManifest;
+import com.testautomation.agent.utils.GeneratorEvents;
 import com.testautomation.agent.utils.NamingUtils;
+import com.testautomation.agent.utils.StepOccurrenceIndex;
+import com.testautomation.agent.utils.StepParameterExtractor;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.stream.Collectors;
 
 /**
@@ -20,12 +39,21 @@ import java.util.stream.Collectors;
 public class StepDefinitionGenerator {
     private static final Logger logger = LoggerFactory.getLogger(StepDefinitionGenerator.class);
     
+    private static final String REGEX_METACHARACTERS = "[](){}.*+?^$|\\";
+    
+    // Steps generated by one fork-join task before it stops splitting
+    private static final int PARALLEL_BATCH_SIZE = 256;
+    
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    
     private final CodeTemplateManager templateManager;
     private final NamingUtils namingUtils;
+    private final StepParameterExtractor parameterExtractor;
     
     public StepDefinitionGenerator() {
         this.templateManager = new CodeTemplateManager();
         this.namingUtils = new NamingUtils();
+        this.parameterExtractor = new StepParameterExtractor();
     }
     
     /**
@@ -34,48 +62,250 @@ public class StepDefinitionGenerator {
     public Map<String, List<StepDefinition>> generateStepDefinitions(
             Map<String, List<FeatureStep>> allSteps, 
             GenerationConfig config) throws IOException {
+        return generateStepDefinitions(StepOccurrenceIndex.build(allSteps), config);
+    }
+    
+    /**
+     * Generate step definitions for the unique steps of an occurrence index
+     */
+    public Map<String, List<StepDefinition>> generateStepDefinitions(
+            StepOccurrenceIndex index, 
+            GenerationConfig config) throws IOException {
         
         Map<String, List<StepDefinition>> generatedDefinitions = new HashMap<>();
+        ForkJoinPool pool = config.getGenerationThreads() > 1 ? new ForkJoinPool(config.getGenerationThreads()) : null;
         
-        // Get unique steps to avoid duplicates
-        Set<FeatureStep> uniqueSteps = getUniqueSteps(allSteps);
-        
-        // Group steps by type for organization
-        Map<String, List<FeatureStep>> groupedSteps = groupStepsByType(uniqueSteps);
+        try {
+            // Unique steps grouped by type
+            for (Map.Entry<String, List<FeatureStep>> entry : index.getStepsByType().entrySet()) {
+                String stepType = entry.getKey();
+                List<FeatureStep> steps = entry.getValue();
+                
+                if (shouldGenerateForStepType(stepType, config)) {
+                    GeneratorEvents.StepTypeGenerated event = new GeneratorEvents.StepTypeGenerated();
+                    event.begin();
+                    
+                    List<StepDefinition> definitions = generateStepDefinitionsForType(
+                        stepType, steps, config, pool);
+                    generatedDefinitions.put(stepType, definitions);
+                    
+                    if (event.shouldCommit()) {
+                        event.stepType = stepType;
+                        event.stepCount = definitions.size();
+                        event.commit();
+                    }
+                }
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
         
-        for (Map.Entry<String, List<FeatureStep>> entry : groupedSteps.entrySet()) {
-            String stepType = entry.getKey();
-            List<FeatureStep> steps = entry.getValue();
+        return generatedDefinitions;
+    }
+    
+    /**
+     * Merge each near-duplicate cluster into the definition of its representative step.
+     * The wording that differs between the steps becomes optional or alternative text in
+     * the annotation, so the merged method keeps the representative's parameters. Clusters
+     * whose steps take different parameters are left alone. Returns the number of merged clusters.
+     */
+    public int mergeNearDuplicates(Map<String, List<StepDefinition>> definitions,
+                                   List<NearDuplicateCluster> clusters) {
+        Map<String, Map<String, StepDefinition>> definitionsByAnnotation = new HashMap<>();
+        Map<String, Set<StepDefinition>> mergedAway = new HashMap<>();
+        int mergedClusters = 0;
+        
+        for (NearDuplicateCluster cluster : clusters) {
+            String stepType = cluster.getStepType();
+            List<StepDefinition> typeDefinitions = definitions.get(stepType);
+            if (typeDefinitions == null) {
+                continue;
+            }
             
-            if (shouldGenerateForStepType(stepType, config)) {
-                List<StepDefinition> definitions = generateStepDefinitionsForType(
-                    stepType, steps, config);
-                generatedDefinitions.put(stepType, definitions);
+            Map<String, StepDefinition> byAnnotation = definitionsByAnnotation.computeIfAbsent(stepType, k -> {
+                Map<String, StepDefinition> lookup = new HashMap<>();
+                for (StepDefinition definition : typeDefinitions) {
+                    lookup.putIfAbsent(definition.getAnnotation(), definition);
+                }
+                return lookup;
+            });
+            
+            StepDefinition representative = byAnnotation.get(generateAnnotation(cluster.getRepresentative()));
+            if (representative == null) {
+                continue;
             }
+            
+            String parameterList = getParameterList(representative);
+            List<String[]> patterns = new ArrayList<>();
+            List<StepDefinition> others = new ArrayList<>();
+            boolean mergeable = true;
+            for (NearDuplicateCluster.Member member : cluster.getMembers()) {
+                FeatureStep step = member.getStep();
+                StepDefinition definition = byAnnotation.get(generateAnnotation(step));
+                if (definition == null || !parameterList.equals(getParameterList(definition))) {
+                    mergeable = false;
+                    break;
+                }
+                patterns.add(convertToRegex(step.getText(), getParameterSpans(step)).split(" "));
+                if (definition != representative) {
+                    others.add(definition);
+                }
+            }
+            
+            String mergedRegex = mergeable ? mergePatterns(patterns) : null;
+            if (mergedRegex == null) {
+                logger.debug("Near-duplicate cluster cannot be merged: {}", cluster);
+                continue;
+            }
+            
+            representative.setAnnotation(String.format("@%s(\"%s\")", cluster.getKeyword(), escapeJavaString(mergedRegex)));
+            cluster.setMergedAnnotation(representative.getAnnotation());
+            mergedAway.computeIfAbsent(stepType, k -> Collections.newSetFromMap(new IdentityHashMap<>())).addAll(others);
+            mergedClusters++;
         }
         
-        return generatedDefinitions;
+        for (Map.Entry<String, Set<StepDefinition>> entry : mergedAway.entrySet()) {
+            definitions.get(entry.getKey()).removeIf(entry.getValue()::contains);
+        }
+        
+        logger.info("Merged {} of {} near-duplicate clusters", mergedClusters, clusters.size());
+        return mergedClusters;
     }
     
     /**
-     * Generate step definitions for a specific step type
+     * Build one regex matching every pattern, the first pattern's wording first. Tokens common
+     * to all patterns are kept; the wording between them becomes an alternation, optional when
+     * some pattern has nothing there. Returns null when the patterns differ in a parameter.
+     */
+    private String mergePatterns(List<String[]> patterns) {
+        List<String> common = Arrays.asList(patterns.get(0));
+        for (int i = 1; i < patterns.size(); i++) {
+            common = longestCommonSubsequence(common, Arrays.asList(patterns.get(i)));
+        }
+        if (common.isEmpty()) {
+            return null;
+        }
+        
+        // Distinct wordings of the gap before each common token and after the last one
+        List<Set<String>> gaps = new ArrayList<>();
+        for (int k = 0; k <= common.size(); k++) {
+            gaps.add(new LinkedHashSet<>());
+        }
+        for (String[] tokens : patterns) {
+            int position = 0;
+            for (int k = 0; k <= common.size(); k++) {
+                int end = tokens.length;
+                if (k < common.size()) {
+                    end = position;
+                    while (!tokens[end].equals(common.get(k))) {
+                        end++;
+                    }
+                }
+                String gap = String.join(" ", Arrays.copyOfRange(tokens, position, end));
+                if (gap.contains("([^\"]+)") || gap.contains("(\\d+)")) {
+                    return null;
+                }
+                gaps.get(k).add(gap);
+                position = end + 1;
+            }
+        }
+        
+        StringBuilder regex = new StringBuilder();
+        for (int k = 0; k <= common.size(); k++) {
+            Set<String> variants = gaps.get(k);
+            boolean optional = variants.remove("");
+            boolean trailing = k == common.size();
+            if (!variants.isEmpty()) {
+                String alternatives = variants.size() == 1 ?
+                    variants.iterator().next() : "(?:" + String.join("|", variants) + ")";
+                if (trailing) {
+                    regex.append(optional ? "(?: " + alternatives + ")?" : " " + alternatives);
+                } else {
+                    regex.append(optional ? "(?:" + alternatives + " )?" : alternatives + " ");
+                }
+            }
+            if (!trailing) {
+                regex.append(common.get(k));
+                if (k < common.size() - 1) {
+                    regex.append(' ');
+                }
+            }
+        }
+        return regex.toString();
+    }
+    
+    private static List<String> longestCommonSubsequence(List<String> a, List<String> b) {
+        int[][] lengths = new int[a.size() + 1][b.size() + 1];
+        for (int i = a.size() - 1; i >= 0; i--) {
+            for (int j = b.size() - 1; j >= 0; j--) {
+                lengths[i][j] = a.get(i).equals(b.get(j)) ?
+                    lengths[i + 1][j + 1] + 1 : Math.max(lengths[i + 1][j], lengths[i][j + 1]);
+            }
+        }
+        
+        List<String> common = new ArrayList<>(lengths[0][0]);
+        int i = 0;
+        int j = 0;
+        while (i < a.size() && j < b.size()) {
+            if (a.get(i).equals(b.get(j))) {
+                common.add(a.get(i));
+                i++;
+                j++;
+            } else if (lengths[i + 1][j] >= lengths[i][j + 1]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return common;
+    }
+    
+    private static String getParameterList(StepDefinition definition) {
+        String signature = definition.getMethodSignature();
+        return signature.substring(signature.indexOf('('));
+    }
+    
+    /**
+     * Generate step definitions for a specific step type. With a pool, the definitions are
+     * generated in parallel; method names are then made unique in step order, so the
+     * result is the same as the serial one.
      */
     private List<StepDefinition> generateStepDefinitionsForType(
             String stepType, 
             List<FeatureStep> steps, 
-            GenerationConfig config) throws IOException {
+            GenerationConfig config,
+            ForkJoinPool pool) throws IOException {
+        
+        StepGenerationContext[] contexts = new StepGenerationContext[steps.size()];
+        StepDefinition[] generated = new StepDefinition[steps.size()];
+        if (pool != null && steps.size() > PARALLEL_BATCH_SIZE) {
+            List<FeatureStep> stepList = steps instanceof RandomAccess ? steps : new ArrayList<>(steps);
+            pool.invoke(new GenerateTask(stepList, contexts, generated, 0, generated.length, config));
+        } else {
+            int i = 0;
+            for (FeatureStep step : steps) {
+                contexts[i] = createContext(step);
+                generated[i] = generateStepDefinition(contexts[i], config);
+                i++;
+            }
+        }
         
-        List<StepDefinition> definitions = new ArrayList<>();
+        List<StepDefinition> definitions = new ArrayList<>(generated.length);
         Set<String> usedMethodNames = new HashSet<>();
         
-        for (FeatureStep step : steps) {
-            StepDefinition definition = generateStepDefinition(step, config);
+        for (int i = 0; i < generated.length; i++) {
+            StepDefinition definition = generated[i];
             
             // Ensure unique method names to avoid compilation errors
             String originalMethodName = definition.getMethodName();
             String uniqueMethodName = ensureUniqueMethodName(originalMethodName, usedMethodNames);
             if (!originalMethodName.equals(uniqueMethodName)) {
+                // The signature and body were generated with the original name
                 definition.setMethodName(uniqueMethodName);
+                definition.setMethodSignature(generateMethodSignature(contexts[i], uniqueMethodName));
+                definition.setMethodBody(generateMethodBody(contexts[i], uniqueMethodName));
                 logger.debug("Renamed method from '{}' to '{}' to avoid duplicates", 
                     originalMethodName, uniqueMethodName);
             }
@@ -87,6 +317,42 @@ public class StepDefinitionGenerator {
         return definitions;
     }
     
+    /**
+     * Generates the definitions of a range of steps, splitting large ranges in half
+     */
+    private final class GenerateTask extends RecursiveAction {
+        private final List<FeatureStep> steps;
+        private final StepGenerationContext[] contexts;
+        private final StepDefinition[] definitions;
+        private final int from;
+        private final int to;
+        private final GenerationConfig config;
+        
+        private GenerateTask(List<FeatureStep> steps, StepGenerationContext[] contexts, StepDefinition[] definitions,
+                             int from, int to, GenerationConfig config) {
+            this.steps = steps;
+            this.contexts = contexts;
+            this.definitions = definitions;
+            this.from = from;
+            this.to = to;
+            this.config = config;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_BATCH_SIZE) {
+                for (int i = from; i < to; i++) {
+                    contexts[i] = createContext(steps.get(i));
+                    definitions[i] = generateStepDefinition(contexts[i], config);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new GenerateTask(steps, contexts, definitions, from, middle, config),
+                new GenerateTask(steps, contexts, definitions, middle, to, config));
+        }
+    }
+    
     /**
      * Ensure method name is unique by appending numbers if needed
      */
@@ -105,14 +371,29 @@ public class StepDefinitionGenerator {
         return uniqueName;
     }
     
+    /**
+     * Derive the text artifacts of a step that the generation stages share
+     */
+    private StepGenerationContext createContext(FeatureStep step) {
+        List<StepParameter> parameterSpans = getParameterSpans(step);
+        List<String> parameterTypes = new ArrayList<>(step.getParameters().size());
+        for (String parameter : step.getParameters()) {
+            parameterTypes.add(determineParameterType(parameter));
+        }
+        return new StepGenerationContext(step, parameterSpans, step.getText().toLowerCase(),
+            generateMethodName(step.getText(), parameterSpans),
+            convertToRegex(step.getText(), parameterSpans), parameterTypes);
+    }
+    
     /**
      * Generate a single step definition
      */
-    private StepDefinition generateStepDefinition(FeatureStep step, GenerationConfig config) {
-        String methodName = generateMethodName(step);
-        String annotation = generateAnnotation(step);
-        String methodSignature = generateMethodSignature(step, config);
-        String methodBody = generateMethodBody(step, config);
+    private StepDefinition generateStepDefinition(StepGenerationContext context, GenerationConfig config) {
+        FeatureStep step = context.getStep();
+        String methodName = context.getMethodName();
+        String annotation = generateAnnotation(step.getKeyword(), context.getRegex());
+        String methodSignature = generateMethodSignature(context, methodName);
+        String methodBody = generateMethodBody(context, methodName);
         String className = generateClassName(step.getStepType(), config);
         String packageName = generatePackageName(step.getStepType(), config);
         
@@ -128,25 +409,36 @@ public class StepDefinitionGenerator {
     }
     
     /**
-     * Generate method name from step text
+     * Generate method name from step text, skipping quoted parameters, digits and punctuation
      */
-    private String generateMethodName(FeatureStep step) {
-        String text = step.getText().toLowerCase();
-        
-        // Remove parameters and special characters
-        text = text.replaceAll("\"[^\"]*\"", "")
-                  .replaceAll("\\d+", "")
-                  .replaceAll("[^a-zA-Z0-9\\s]", "")
-                  .trim();
+    private String generateMethodName(String text, List<StepParameter> parameterSpans) {
+        Iterator<StepParameter> quotedSpans = parameterSpans.stream()
+            .filter(parameter -> parameter.getType() == StepParameter.Type.QUOTED_STRING)
+            .iterator();
+        StepParameter nextQuoted = quotedSpans.hasNext() ? quotedSpans.next() : null;
         
         // Convert to camelCase
-        String[] words = text.split("\\s+");
-        StringBuilder methodName = new StringBuilder(words[0]);
-        
-        for (int i = 1; i < words.length; i++) {
-            if (!words[i].isEmpty()) {
-                methodName.append(Character.toUpperCase(words[i].charAt(0)))
-                         .append(words[i].substring(1));
+        StringBuilder methodName = new StringBuilder(text.length());
+        boolean firstWord = true;
+        boolean wordStarted = false;
+        int i = 0;
+        while (i < text.length()) {
+            if (nextQuoted != null && i == nextQuoted.getStart()) {
+                i = nextQuoted.getEnd();
+                nextQuoted = quotedSpans.hasNext() ? quotedSpans.next() : null;
+                continue;
+            }
+            
+            char c = Character.toLowerCase(text.charAt(i++));
+            if (c >= 'a' && c <= 'z') {
+                if (!wordStarted && !firstWord) {
+                    c = Character.toUpperCase(c);
+                }
+                methodName.append(c);
+                wordStarted = true;
+            } else if (isRegexWhitespace(c) && wordStarted) {
+                firstWord = false;
+                wordStarted = false;
             }
         }
         
@@ -157,65 +449,109 @@ public class StepDefinitionGenerator {
      * Generate Cucumber annotation
      */
     private String generateAnnotation(FeatureStep step) {
-        String keyword = step.getKeyword();
-        String text = step.getText();
-        
         // Convert parameters to regex patterns
-        String regexText = convertToRegex(text);
-        
-        return String.format("@%s(\"%s\")", keyword, regexText);
+        return generateAnnotation(step.getKeyword(), convertToRegex(step.getText(), getParameterSpans(step)));
+    }
+    
+    private String generateAnnotation(String keyword, String regexText) {
+        return String.format("@%s(\"%s\")", keyword, escapeJavaString(regexText));
     }
     
     /**
-     * Convert step text to regex pattern
+     * Convert step text to regex pattern, replacing each parameter span with a capture group
      */
-    private String convertToRegex(String text) {
-        // Replace quoted strings with regex groups
-        text = text.replaceAll("\"([^\"]+)\"", "\"([^\"]+)\"");
-        
-        // Replace numbers with regex groups
-        text = text.replaceAll("\\b(\\d+)\\b", "(\\\\d+)");
-        
-        // Replace data table references
-        text = text.replaceAll("data table", "datatable");
-        
-        // Replace doc string references
-        text = text.replaceAll("doc string|multiline", "docstring");
-        
-        // Escape special regex characters that are not part of our patterns
-        text = text.replaceAll("([\\[\\](){}.*+?^$|\\\\])", "\\\\$1");
-        
-        // Restore our intentional patterns
-        text = text.replaceAll("\\\\\\(\\\\\\[\\\\\\^\\\\\"\\\\\\]\\\\\\+\\\\\\)", "([^\"]+)");
-        text = text.replaceAll("\\\\\\(\\\\\\\\d\\\\\\+\\)", "(\\\\d+)");
+    String convertToRegex(String text, List<StepParameter> parameterSpans) {
+        StringBuilder regex = new StringBuilder(text.length() + 16);
+        int literalStart = 0;
+        
+        for (StepParameter parameter : parameterSpans) {
+            appendLiteralRegex(regex, text, literalStart, parameter.getStart());
+            if (parameter.getType() == StepParameter.Type.NUMBER) {
+                regex.append("(\\d+)");
+            } else {
+                regex.append("\"([^\"]+)\"");
+            }
+            literalStart = parameter.getEnd();
+        }
+        appendLiteralRegex(regex, text, literalStart, text.length());
         
-        return text;
+        return regex.toString();
+    }
+    
+    /**
+     * Append literal step text, rewriting data table and doc string references and
+     * escaping regex metacharacters
+     */
+    private void appendLiteralRegex(StringBuilder regex, String text, int start, int end) {
+        int i = start;
+        while (i < end) {
+            if (text.startsWith("data table", i) && i + 10 <= end) {
+                regex.append("datatable");
+                i += 10;
+            } else if (text.startsWith("doc string", i) && i + 10 <= end) {
+                regex.append("docstring");
+                i += 10;
+            } else if (text.startsWith("multiline", i) && i + 9 <= end) {
+                regex.append("docstring");
+                i += 9;
+            } else {
+                char c = text.charAt(i++);
+                if (REGEX_METACHARACTERS.indexOf(c) >= 0) {
+                    regex.append('\\');
+                }
+                regex.append(c);
+            }
+        }
+    }
+    
+    /**
+     * Escape text for use inside a Java string literal
+     */
+    private String escapeJavaString(String text) {
+        StringBuilder escaped = new StringBuilder(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' || c == '"') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+    
+    private List<StepParameter> getParameterSpans(FeatureStep step) {
+        List<StepParameter> parameterSpans = step.getParameterSpans();
+        return parameterSpans != null ? parameterSpans : parameterExtractor.extract(step.getText());
+    }
+    
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
     }
     
     /**
      * Generate method signature
      */
-    private String generateMethodSignature(FeatureStep step, GenerationConfig config) {
+    private String generateMethodSignature(StepGenerationContext context, String methodName) {
         StringBuilder signature = new StringBuilder();
-        signature.append("public void ").append(generateMethodName(step)).append("(");
+        signature.append("public void ").append(methodName).append("(");
         
-        List<String> parameters = step.getParameters();
+        List<String> parameterTypes = context.getParameterTypes();
         List<String> methodParams = new ArrayList<>();
         
-        for (int i = 0; i < parameters.size(); i++) {
-            String paramType = determineParameterType(parameters.get(i), step.getText());
+        for (int i = 0; i < parameterTypes.size(); i++) {
             String paramName = "param" + (i + 1);
-            methodParams.add(paramType + " " + paramName);
+            methodParams.add(parameterTypes.get(i) + " " + paramName);
         }
         
         // Add DataTable parameter if step contains data table
-        if (step.getText().toLowerCase().contains("data table")) {
+        String lowerCaseText = context.getLowerCaseText();
+        if (lowerCaseText.contains("data table")) {
             methodParams.add("DataTable dataTable");
         }
         
         // Add String parameter if step contains doc string
-        if (step.getText().toLowerCase().contains("doc string") || 
-            step.getText().toLowerCase().contains("multiline")) {
+        if (lowerCaseText.contains("doc string") || 
+            lowerCaseText.contains("multiline")) {
             methodParams.add("String docString");
         }
         
@@ -228,8 +564,8 @@ public class StepDefinitionGenerator {
     /**
      * Determine parameter type based on content
      */
-    private String determineParameterType(String parameter, String stepText) {
-        if (parameter.matches("\\d+")) {
+    private String determineParameterType(String parameter) {
+        if (isDigits(parameter)) {
             return "int";
         } else if (parameter.equals("DataTable")) {
             return "DataTable";
@@ -240,14 +576,27 @@ public class StepDefinitionGenerator {
         }
     }
     
+    private static boolean isDigits(String text) {
+        if (text.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+    
     /**
      * Generate method body
      */
-    private String generateMethodBody(FeatureStep step, GenerationConfig config) {
-        String template = templateManager.getTemplate(step.getStepType());
+    private String generateMethodBody(StepGenerationContext context, String methodName) {
+        FeatureStep step = context.getStep();
         
         Map<String, String> variables = new HashMap<>();
-        variables.put("methodName", generateMethodName(step));
+        variables.put("methodName", methodName);
         variables.put("stepText", step.getText());
         variables.put("stepType", step.getStepType());
         variables.put("parameters", String.join(", ", step.getParameters()));
@@ -259,7 +608,7 @@ public class StepDefinitionGenerator {
         
         variables.put("loggerStatement", loggerStatement.toString());
         
-        return templateManager.processTemplate(template, variables);
+        return templateManager.getCompiledTemplate(step.getStepType()).render(variables);
     }
     
     /**
@@ -287,8 +636,19 @@ public class StepDefinitionGenerator {
     /**
      * Write step definitions to files
      */
-    public void writeStepDefinitions(Map<String, List<StepDefinition>> definitions, 
-                                   GenerationConfig config) throws IOException {
+    public WriteSummary writeStepDefinitions(Map<String, List<StepDefinition>> definitions, 
+                                           GenerationConfig config) throws IOException {
+        return writeStepDefinitions(definitions, config, null);
+    }
+    
+    /**
+     * Write step definitions to files, skipping classes the manifest shows are already
+     * up to date. A null manifest writes every class.
+     */
+    public WriteSummary writeStepDefinitions(Map<String, List<StepDefinition>> definitions,
+                                           GenerationConfig config,
+                                           GenerationManifest manifest) throws IOException {
+        WriteSummary summary = new WriteSummary();
         
         for (Map.Entry<String, List<StepDefinition>> entry : definitions.entrySet()) {
             String stepType = entry.getKey();
@@ -302,26 +662,113 @@ public class StepDefinitionGenerator {
                 String className = classEntry.getKey();
                 List<StepDefinition> classDefinitions = classEntry.getValue();
                 
-                String fileContent = generateClassFile(classDefinitions, config);
                 String filePath = classDefinitions.get(0).getFilePath();
-                
-                // Create directory if it doesn't exist
                 File file = new File(filePath);
+                
+                GeneratorEvents.ClassFileWritten event = new GeneratorEvents.ClassFileWritten();
+                event.begin();
+                
+                String fingerprint = null;
+                if (manifest != null) {
+                    fingerprint = GenerationManifest.fingerprint(classDefinitions);
+                    if (manifest.isClassUpToDate(file, fingerprint)) {
+                        logger.info("Step definition file is up to date: {}", filePath);
+                        summary.recordUnchanged();
+                        commitClassFileEvent(event, file, classDefinitions.size(), file.length(), false);
+                        continue;
+                    }
+                }
+                
+                // Stream the class into a temporary file next to the target and rename it over
+                // the target, so readers never see a partially written class
                 FileUtils.forceMkdirParent(file);
+                Path target = file.toPath();
+                Path tempFile = target.resolveSibling("." + file.getName() + "." + UUID.randomUUID() + ".tmp");
+                long bytes;
+                boolean written;
+                try {
+                    try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                            Files.newOutputStream(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE),
+                            StandardCharsets.UTF_8), WRITE_BUFFER_SIZE)) {
+                        writeClassFile(classDefinitions, writer);
+                    }
+                    bytes = Files.size(tempFile);
+                    
+                    written = !(config.isSkipUnchangedWrites() && hasSameContent(file, tempFile));
+                    if (written) {
+                        replaceAtomically(tempFile, target);
+                        logger.info("Generated step definition file: {}", filePath);
+                        summary.recordWritten();
+                    } else {
+                        logger.info("Step definition file is unchanged: {}", filePath);
+                        summary.recordUnchanged();
+                    }
+                } finally {
+                    Files.deleteIfExists(tempFile);
+                }
                 
-                // Write file
-                FileUtils.writeStringToFile(file, fileContent, "UTF-8");
-                logger.info("Generated step definition file: {}", filePath);
+                if (manifest != null) {
+                    manifest.recordClass(file, fingerprint);
+                }
+                commitClassFileEvent(event, file, classDefinitions.size(), bytes, written);
+            }
+        }
+        
+        return summary;
+    }
+    
+    private void commitClassFileEvent(GeneratorEvents.ClassFileWritten event, File file,
+                                      int stepCount, long bytes, boolean written) {
+        if (event.shouldCommit()) {
+            event.fileName = file.getName();
+            event.stepCount = stepCount;
+            event.bytes = bytes;
+            event.written = written;
+            event.commit();
+        }
+    }
+    
+    /**
+     * Whether a file already holds exactly the content of another file, compared in chunks
+     */
+    private boolean hasSameContent(File file, Path content) throws IOException {
+        if (!file.isFile() || file.length() != Files.size(content)) {
+            return false;
+        }
+        
+        byte[] fileBuffer = new byte[WRITE_BUFFER_SIZE];
+        byte[] contentBuffer = new byte[WRITE_BUFFER_SIZE];
+        try (InputStream fileInput = Files.newInputStream(file.toPath());
+             InputStream contentInput = Files.newInputStream(content)) {
+            int read;
+            while ((read = fileInput.readNBytes(fileBuffer, 0, fileBuffer.length)) > 0) {
+                if (contentInput.readNBytes(contentBuffer, 0, read) != read ||
+                    !Arrays.equals(fileBuffer, 0, read, contentBuffer, 0, read)) {
+                    return false;
+                }
             }
         }
+        return true;
     }
     
     /**
-     * Generate complete class file content
+     * Rename a temporary file in the target directory over the target
      */
-    private String generateClassFile(List<StepDefinition> definitions, GenerationConfig config) {
+    private void replaceAtomically(Path tempFile, Path target) throws IOException {
+        try {
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * Write complete class file content. Each part goes straight to the writer, so only
+     * one method is held in memory at a time.
+     */
+    private void writeClassFile(List<StepDefinition> definitions, Writer writer) throws IOException {
         if (definitions.isEmpty()) {
-            return "";
+            return;
         }
         
         StepDefinition firstDef = definitions.get(0);
@@ -329,34 +776,30 @@ public class StepDefinitionGenerator {
         String className = firstDef.getClassName();
         String stepType = firstDef.getStepType();
         
-        StringBuilder classContent = new StringBuilder();
-        
         // Package declaration
-        classContent.append("package ").append(packageName).append(";\n\n");
+        writer.append("package ").append(packageName).append(";\n\n");
         
         // Imports
-        classContent.append(generateImports(stepType));
+        writer.write(generateImports(stepType));
         
         // Class declaration
-        classContent.append("public class ").append(className).append(" {\n\n");
+        writer.append("public class ").append(className).append(" {\n\n");
         
         // Add fields based on step type
-        classContent.append(generateFields(stepType));
+        writer.write(generateFields(stepType));
         
         // Add constructor
-        classContent.append(generateConstructor(stepType));
+        writer.write(generateConstructor(stepType));
         
         // Add step definition methods
         for (StepDefinition definition : definitions) {
-            classContent.append("    ").append(definition.getAnnotation()).append("\n");
-            classContent.append("    ").append(definition.getMethodSignature()).append(" {\n");
-            classContent.append("        ").append(definition.getMethodBody()).append("\n");
-            classContent.append("    }\n\n");
+            writer.append("    ").append(definition.getAnnotation()).append("\n");
+            writer.append("    ").append(definition.getMethodSignature()).append(" {\n");
+            writer.append("        ").append(definition.getMethodBody()).append("\n");
+            writer.write("    }\n\n");
         }
         
-        classContent.append("}\n");
-        
-        return classContent.toString();
+        writer.write("}\n");
     }
     
     /**
@@ -459,18 +902,6 @@ public class StepDefinitionGenerator {
     }
     
     // Helper methods
-    private Set<FeatureStep> getUniqueSteps(Map<String, List<FeatureStep>> allSteps) {
-        Set<FeatureStep> uniqueSteps = new HashSet<>();
-        for (List<FeatureStep> steps : allSteps.values()) {
-            uniqueSteps.addAll(steps);
-        }
-        return uniqueSteps;
-    }
-    
-    private Map<String, List<FeatureStep>> groupStepsByType(Set<FeatureStep> steps) {
-        return steps.stream().collect(Collectors.groupingBy(FeatureStep::getStepType));
-    }
-    
     private boolean shouldGenerateForStepType(String stepType, GenerationConfig config) {
         switch (stepType) {
             case "WEB": return config.isGeneratePageObjectMethods();
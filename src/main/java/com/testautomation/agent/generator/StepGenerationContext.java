@@ -0,0 +1,53 @@
+package com.testautomation.agent.generator;
+
+import com.testautomation.agent.model.FeatureStep;
+import com.testautomation.agent.model.StepParameter;
+
+import java.util.List;
+
+/**
+ * Artifacts derived from a step once and shared by every stage that generates its
+ * definition: annotation, signature and body
+ */
+final class StepGenerationContext {
+    private final FeatureStep step;
+    private final List<StepParameter> parameterSpans;
+    private final String lowerCaseText;
+    private final String methodName;
+    private final String regex;
+    private final List<String> parameterTypes;
+
+    StepGenerationContext(FeatureStep step, List<StepParameter> parameterSpans, String lowerCaseText,
+                          String methodName, String regex, List<String> parameterTypes) {
+        this.step = step;
+        this.parameterSpans = parameterSpans;
+        this.lowerCaseText = lowerCaseText;
+        this.methodName = methodName;
+        this.regex = regex;
+        this.parameterTypes = parameterTypes;
+    }
+
+    FeatureStep getStep() { return step; }
+
+    List<StepParameter> getParameterSpans() { return parameterSpans; }
+
+    /**
+     * Step text in lower case, for keyword checks such as data tables and doc strings
+     */
+    String getLowerCaseText() { return lowerCaseText; }
+
+    /**
+     * Method name derived from the step text, before it is made unique within its class
+     */
+    String getMethodName() { return methodName; }
+
+    /**
+     * Cucumber expression regex of the step, not yet escaped for a Java string
+     */
+    String getRegex() { return regex; }
+
+    /**
+     * Java type of each step parameter, in order
+     */
+    List<String> getParameterTypes() { return parameterTypes; }
+}
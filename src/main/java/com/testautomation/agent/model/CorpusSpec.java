@@ -0,0 +1,85 @@
+package com.testautomation.agent.model;
+
+/**
+ * Shape of a synthetic feature file corpus
+ */
+public class CorpusSpec {
+    private int featureFiles;
+    private int scenariosPerFile;
+    private int stepsPerScenario;
+    private int outlinesPerFile;
+    private int examplesPerOutline;
+    private int dataTablesPerFile;
+    private int docStringsPerFile;
+    private double duplicateRatio;
+    private int filesPerDirectory;
+    private long seed;
+
+    public CorpusSpec() {
+        // Default values
+        this.featureFiles = 100;
+        this.scenariosPerFile = 10;
+        this.stepsPerScenario = 5;
+        this.outlinesPerFile = 1;
+        this.examplesPerOutline = 3;
+        this.dataTablesPerFile = 1;
+        this.docStringsPerFile = 1;
+        this.duplicateRatio = 0.3;
+        this.filesPerDirectory = 100;
+        this.seed = 42;
+    }
+
+    // Getters and Setters
+    public int getFeatureFiles() { return featureFiles; }
+    public void setFeatureFiles(int featureFiles) { this.featureFiles = featureFiles; }
+
+    /**
+     * Scenarios per feature file, including outlines
+     */
+    public int getScenariosPerFile() { return scenariosPerFile; }
+    public void setScenariosPerFile(int scenariosPerFile) { this.scenariosPerFile = scenariosPerFile; }
+
+    public int getStepsPerScenario() { return stepsPerScenario; }
+    public void setStepsPerScenario(int stepsPerScenario) { this.stepsPerScenario = stepsPerScenario; }
+
+    public int getOutlinesPerFile() { return outlinesPerFile; }
+    public void setOutlinesPerFile(int outlinesPerFile) { this.outlinesPerFile = outlinesPerFile; }
+
+    public int getExamplesPerOutline() { return examplesPerOutline; }
+    public void setExamplesPerOutline(int examplesPerOutline) { this.examplesPerOutline = examplesPerOutline; }
+
+    public int getDataTablesPerFile() { return dataTablesPerFile; }
+    public void setDataTablesPerFile(int dataTablesPerFile) { this.dataTablesPerFile = dataTablesPerFile; }
+
+    public int getDocStringsPerFile() { return docStringsPerFile; }
+    public void setDocStringsPerFile(int docStringsPerFile) { this.docStringsPerFile = docStringsPerFile; }
+
+    /**
+     * Share of steps taken from the fixed step vocabulary, which recur throughout the
+     * corpus (0.0 - 1.0); every other step is unique across the corpus
+     */
+    public double getDuplicateRatio() { return duplicateRatio; }
+    public void setDuplicateRatio(double duplicateRatio) { this.duplicateRatio = duplicateRatio; }
+
+    public int getFilesPerDirectory() { return filesPerDirectory; }
+    public void setFilesPerDirectory(int filesPerDirectory) { this.filesPerDirectory = filesPerDirectory; }
+
+    public long getSeed() { return seed; }
+    public void setSeed(long seed) { this.seed = seed; }
+
+    @Override
+    public String toString() {
+        return "CorpusSpec{" +
+                "featureFiles=" + featureFiles +
+                ", scenariosPerFile=" + scenariosPerFile +
+                ", stepsPerScenario=" + stepsPerScenario +
+                ", outlinesPerFile=" + outlinesPerFile +
+                ", examplesPerOutline=" + examplesPerOutline +
+                ", dataTablesPerFile=" + dataTablesPerFile +
+                ", docStringsPerFile=" + docStringsPerFile +
+                ", duplicateRatio=" + duplicateRatio +
+                ", filesPerDirectory=" + filesPerDirectory +
+                ", seed=" + seed +
+                '}';
+    }
+}
@@ -1,5 +1,9 @@
 package com.testautomation.agent.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.testautomation.agent.utils.StepParameterExtractor;
+import com.testautomation.agent.utils.StepTypeClassifier;
+
 import java.util.List;
 import java.util.Objects;
 
@@ -7,48 +11,72 @@ import java.util.Objects;
  * Represents a step from a Cucumber feature file
  */
 public class FeatureStep {
+    private static final StepParameterExtractor PARAMETER_EXTRACTOR = new StepParameterExtractor();
+
     private String keyword; // Given, When, Then, And, But
     private String text;
     private List<String> parameters;
+    private List<StepParameter> parameterSpans; // quoted strings and numbers with their positions in text
     private String featureFile;
     private int lineNumber;
     private String stepType; // WEB, API, MOBILE, COMMON
+    private String stepTypeKeyword; // keyword that decided the step type, null for unmatched steps
+    private String normalizedText; // text with parameters replaced by placeholders, used for equality
+    private int hash;
 
-    public FeatureStep() {}
+    public FeatureStep() {
+        updateCanonicalKey();
+    }
 
     public FeatureStep(String keyword, String text, List<String> parameters, String featureFile, int lineNumber) {
+        this(keyword, text, parameters, null, featureFile, lineNumber);
+    }
+
+    public FeatureStep(String keyword, String text, List<String> parameters, List<StepParameter> parameterSpans,
+                       String featureFile, int lineNumber) {
         this.keyword = keyword;
         this.text = text;
         this.parameters = parameters;
+        this.parameterSpans = parameterSpans != null ? parameterSpans : extractParameterSpans(text);
         this.featureFile = featureFile;
         this.lineNumber = lineNumber;
-        this.stepType = determineStepType(text);
+        classifyStepType(text);
+        updateCanonicalKey();
     }
 
-    private String determineStepType(String text) {
-        String lowerText = text.toLowerCase();
-        if (lowerText.contains("api") || lowerText.contains("request") || lowerText.contains("response")) {
-            return "API";
-        } else if (lowerText.contains("mobile") || lowerText.contains("app") || lowerText.contains("device")) {
-            return "MOBILE";
-        } else if (lowerText.contains("page") || lowerText.contains("element") || lowerText.contains("click") || 
-                   lowerText.contains("input") || lowerText.contains("verify") || lowerText.contains("navigate")) {
-            return "WEB";
-        } else {
-            return "COMMON";
-        }
+    /**
+     * Classify the step and remember which keyword decided its type
+     */
+    private void classifyStepType(String text) {
+        StepTypeClassifier.Match match = StepTypeClassifier.getDefault().classify(text);
+        this.stepType = match.getStepType();
+        this.stepTypeKeyword = match.getKeyword();
     }
 
     // Getters and Setters
     public String getKeyword() { return keyword; }
-    public void setKeyword(String keyword) { this.keyword = keyword; }
+    public void setKeyword(String keyword) {
+        this.keyword = keyword;
+        updateCanonicalKey();
+    }
 
     public String getText() { return text; }
-    public void setText(String text) { this.text = text; }
+    public void setText(String text) {
+        this.text = text;
+        this.parameterSpans = extractParameterSpans(text);
+        updateCanonicalKey();
+    }
 
     public List<String> getParameters() { return parameters; }
     public void setParameters(List<String> parameters) { this.parameters = parameters; }
 
+    @JsonIgnore
+    public List<StepParameter> getParameterSpans() { return parameterSpans; }
+    public void setParameterSpans(List<StepParameter> parameterSpans) {
+        this.parameterSpans = parameterSpans != null ? parameterSpans : extractParameterSpans(text);
+        updateCanonicalKey();
+    }
+
     public String getFeatureFile() { return featureFile; }
     public void setFeatureFile(String featureFile) { this.featureFile = featureFile; }
 
@@ -58,38 +86,78 @@ public class FeatureStep {
     public String getStepType() { return stepType; }
     public void setStepType(String stepType) { this.stepType = stepType; }
 
+    public String getStepTypeKeyword() { return stepTypeKeyword; }
+    public void setStepTypeKeyword(String stepTypeKeyword) { this.stepTypeKeyword = stepTypeKeyword; }
+
+    @JsonIgnore
+    public String getNormalizedText() { return normalizedText; }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         FeatureStep that = (FeatureStep) o;
-        return Objects.equals(keyword, that.keyword) && Objects.equals(normalizeText(text), normalizeText(that.text));
+        return hash == that.hash && Objects.equals(keyword, that.keyword) &&
+               Objects.equals(normalizedText, that.normalizedText);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(keyword, normalizeText(text));
+        return hash;
     }
-    
+
+    /**
+     * Recompute the cached equality key after keyword or text changes
+     */
+    private void updateCanonicalKey() {
+        this.normalizedText = normalizeText(text, parameterSpans);
+        this.hash = Objects.hash(keyword, normalizedText);
+    }
+
+    private static List<StepParameter> extractParameterSpans(String text) {
+        return text != null ? PARAMETER_EXTRACTOR.extract(text) : null;
+    }
+
     /**
-     * Normalize step text by replacing parameters with placeholders for comparison
+     * Normalize step text by replacing parameters with placeholders for comparison.
+     * Steps are equal when their keywords and normalized texts are equal.
      */
-    private String normalizeText(String text) {
+    public static String normalizeText(String text, List<StepParameter> parameterSpans) {
         if (text == null) return null;
-        
-        // Replace quoted strings with placeholder
-        text = text.replaceAll("\"([^\"]+)\"", "\"{string}\"");
-        
-        // Replace numbers with placeholder
-        text = text.replaceAll("\\b(\\d+)\\b", "{int}");
-        
-        // Replace data table references
-        text = text.replaceAll("data table", "{datatable}");
-        
-        // Replace doc string references
-        text = text.replaceAll("doc string|multiline", "{docstring}");
-        
-        return text;
+
+        StringBuilder normalized = new StringBuilder(text.length() + 16);
+        int literalStart = 0;
+
+        // Replace quoted strings and numbers with placeholders
+        for (StepParameter parameter : parameterSpans) {
+            appendNormalizedLiteral(normalized, text, literalStart, parameter.getStart());
+            normalized.append(parameter.getType() == StepParameter.Type.NUMBER ? "{int}" : "\"{string}\"");
+            literalStart = parameter.getEnd();
+        }
+        appendNormalizedLiteral(normalized, text, literalStart, text.length());
+
+        return normalized.toString();
+    }
+
+    /**
+     * Append literal text, replacing data table and doc string references
+     */
+    private static void appendNormalizedLiteral(StringBuilder normalized, String text, int start, int end) {
+        int i = start;
+        while (i < end) {
+            if (text.startsWith("data table", i) && i + 10 <= end) {
+                normalized.append("{datatable}");
+                i += 10;
+            } else if (text.startsWith("doc string", i) && i + 10 <= end) {
+                normalized.append("{docstring}");
+                i += 10;
+            } else if (text.startsWith("multiline", i) && i + 9 <= end) {
+                normalized.append("{docstring}");
+                i += 9;
+            } else {
+                normalized.append(text.charAt(i++));
+            }
+        }
     }
 
     @Override
@@ -101,6 +169,7 @@ public class FeatureStep {
                 ", featureFile='" + featureFile + '\'' +
                 ", lineNumber=" + lineNumber +
                 ", stepType='" + stepType + '\'' +
+                ", stepTypeKeyword='" + stepTypeKeyword + '\'' +
                 '}';
     }
 }
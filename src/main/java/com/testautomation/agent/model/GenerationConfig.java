@@ -18,10 +18,28 @@ public class GenerationConfig {
     private List<String> excludedSteps;
     private boolean validateSteps;
     private boolean generateReports;
-    private String reportFormat; // HTML, JSON, XML
+    private List<String> reportFormats; // HTML, JSON, XML; null uses agent-config.yaml
     private boolean organizeByFeature;
     private boolean organizeByStepType;
     private String namingConvention; // CAMEL_CASE, SNAKE_CASE, PASCAL_CASE
+    private int parseThreads;
+    private int indexThreads;
+    private int generationThreads;
+    private boolean compactStorage;
+    private boolean incremental;
+    private boolean skipUnchangedWrites;
+    private boolean watchMode;
+    private long watchDebounceMillis;
+    private int selfTestScale;
+    private long selfTestSeed;
+    private boolean profile;
+    private String jfrFile;
+    private double nearDuplicateThreshold;
+    private boolean mergeNearDuplicates;
+    private boolean compactJsonReport;
+    private List<String> jsonReportFields;
+    private int htmlPageSize;
+    private boolean compressReports;
 
     public GenerationConfig() {
         // Default values
@@ -33,9 +51,14 @@ public class GenerationConfig {
         this.generateCommonMethods = true;
         this.validateSteps = true;
         this.generateReports = true;
-        this.reportFormat = "HTML";
         this.organizeByStepType = true;
         this.namingConvention = "CAMEL_CASE";
+        this.parseThreads = 1;
+        this.indexThreads = 1;
+        this.generationThreads = 1;
+        this.skipUnchangedWrites = true;
+        this.watchDebounceMillis = 200;
+        this.selfTestSeed = 42;
     }
 
     // Getters and Setters
@@ -80,8 +103,11 @@ public class GenerationConfig {
     public boolean isGenerateReports() { return generateReports; }
     public void setGenerateReports(boolean generateReports) { this.generateReports = generateReports; }
 
-    public String getReportFormat() { return reportFormat; }
-    public void setReportFormat(String reportFormat) { this.reportFormat = reportFormat; }
+    /**
+     * Formats of the report files, null for the reportFormats listed in agent-config.yaml
+     */
+    public List<String> getReportFormats() { return reportFormats; }
+    public void setReportFormats(List<String> reportFormats) { this.reportFormats = reportFormats; }
 
     public boolean isOrganizeByFeature() { return organizeByFeature; }
     public void setOrganizeByFeature(boolean organizeByFeature) { this.organizeByFeature = organizeByFeature; }
@@ -91,4 +117,85 @@ public class GenerationConfig {
 
     public String getNamingConvention() { return namingConvention; }
     public void setNamingConvention(String namingConvention) { this.namingConvention = namingConvention; }
+
+    public int getParseThreads() { return parseThreads; }
+    public void setParseThreads(int parseThreads) { this.parseThreads = parseThreads; }
+
+    /**
+     * Number of threads used to build the step occurrence index for duplicate detection
+     */
+    public int getIndexThreads() { return indexThreads; }
+    public void setIndexThreads(int indexThreads) { this.indexThreads = indexThreads; }
+
+    /**
+     * Number of fork-join threads used to generate step definitions
+     */
+    public int getGenerationThreads() { return generationThreads; }
+    public void setGenerationThreads(int generationThreads) { this.generationThreads = generationThreads; }
+
+    /**
+     * Keep parsed steps in a CompactStepStore instead of FeatureStep lists
+     */
+    public boolean isCompactStorage() { return compactStorage; }
+    public void setCompactStorage(boolean compactStorage) { this.compactStorage = compactStorage; }
+
+    public boolean isIncremental() { return incremental; }
+    public void setIncremental(boolean incremental) { this.incremental = incremental; }
+
+    public boolean isSkipUnchangedWrites() { return skipUnchangedWrites; }
+    public void setSkipUnchangedWrites(boolean skipUnchangedWrites) { this.skipUnchangedWrites = skipUnchangedWrites; }
+
+    public boolean isWatchMode() { return watchMode; }
+    public void setWatchMode(boolean watchMode) { this.watchMode = watchMode; }
+
+    public long getWatchDebounceMillis() { return watchDebounceMillis; }
+    public void setWatchDebounceMillis(long watchDebounceMillis) { this.watchDebounceMillis = watchDebounceMillis; }
+
+    /**
+     * Number of synthetic feature files for the scale self-test, 0 when disabled
+     */
+    public int getSelfTestScale() { return selfTestScale; }
+    public void setSelfTestScale(int selfTestScale) { this.selfTestScale = selfTestScale; }
+
+    public long getSelfTestSeed() { return selfTestSeed; }
+    public void setSelfTestSeed(long selfTestSeed) { this.selfTestSeed = selfTestSeed; }
+
+    public boolean isProfile() { return profile; }
+    public void setProfile(boolean profile) { this.profile = profile; }
+
+    public String getJfrFile() { return jfrFile; }
+    public void setJfrFile(String jfrFile) { this.jfrFile = jfrFile; }
+
+    /**
+     * Minimum similarity of near-duplicate steps, 0 when near-duplicate detection is disabled
+     */
+    public double getNearDuplicateThreshold() { return nearDuplicateThreshold; }
+    public void setNearDuplicateThreshold(double nearDuplicateThreshold) { this.nearDuplicateThreshold = nearDuplicateThreshold; }
+
+    public boolean isMergeNearDuplicates() { return mergeNearDuplicates; }
+    public void setMergeNearDuplicates(boolean mergeNearDuplicates) { this.mergeNearDuplicates = mergeNearDuplicates; }
+
+    /**
+     * Write JSON reports without indentation
+     */
+    public boolean isCompactJsonReport() { return compactJsonReport; }
+    public void setCompactJsonReport(boolean compactJsonReport) { this.compactJsonReport = compactJsonReport; }
+
+    /**
+     * Sections and fields to include in the JSON report, null for all of them
+     */
+    public List<String> getJsonReportFields() { return jsonReportFields; }
+    public void setJsonReportFields(List<String> jsonReportFields) { this.jsonReportFields = jsonReportFields; }
+
+    /**
+     * Rows per page of the paged HTML report, 0 for a single-document HTML report
+     */
+    public int getHtmlPageSize() { return htmlPageSize; }
+    public void setHtmlPageSize(int htmlPageSize) { this.htmlPageSize = htmlPageSize; }
+
+    /**
+     * Write JSON and XML reports gzip-compressed as .json.gz and .xml.gz
+     */
+    public boolean isCompressReports() { return compressReports; }
+    public void setCompressReports(boolean compressReports) { this.compressReports = compressReports; }
 }
@@ -0,0 +1,96 @@
+package com.testautomation.agent.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A group of distinct steps whose wording is nearly the same, such as
+ * "I click the login button" and "I click on the login button"
+ */
+public class NearDuplicateCluster {
+    private String stepType;
+    private String keyword;
+    private FeatureStep representative;
+    private List<Member> members = new ArrayList<>();
+    private String mergedAnnotation; // annotation of the merged definition, null when not merged
+
+    /**
+     * A step of the cluster with its similarity to the representative
+     */
+    public static class Member {
+        private FeatureStep step;
+        private double similarity;
+
+        public Member() {}
+
+        public Member(FeatureStep step, double similarity) {
+            this.step = step;
+            this.similarity = similarity;
+        }
+
+        public FeatureStep getStep() { return step; }
+        public void setStep(FeatureStep step) { this.step = step; }
+
+        /**
+         * Jaccard similarity of the token shingles of this step and the representative
+         */
+        public double getSimilarity() { return similarity; }
+        public void setSimilarity(double similarity) { this.similarity = similarity; }
+    }
+
+    public NearDuplicateCluster() {}
+
+    public NearDuplicateCluster(String stepType, String keyword, FeatureStep representative) {
+        this.stepType = stepType;
+        this.keyword = keyword;
+        this.representative = representative;
+    }
+
+    // Getters and Setters
+    public String getStepType() { return stepType; }
+    public void setStepType(String stepType) { this.stepType = stepType; }
+
+    public String getKeyword() { return keyword; }
+    public void setKeyword(String keyword) { this.keyword = keyword; }
+
+    /**
+     * The most used step of the cluster, which a merged definition is named after
+     */
+    public FeatureStep getRepresentative() { return representative; }
+    public void setRepresentative(FeatureStep representative) { this.representative = representative; }
+
+    /**
+     * All steps of the cluster, the representative first
+     */
+    public List<Member> getMembers() { return members; }
+    public void setMembers(List<Member> members) { this.members = members; }
+
+    public String getMergedAnnotation() { return mergedAnnotation; }
+    public void setMergedAnnotation(String mergedAnnotation) { this.mergedAnnotation = mergedAnnotation; }
+
+    public boolean isMerged() { return mergedAnnotation != null; }
+
+    public int size() { return members.size(); }
+
+    /**
+     * Lowest similarity of any member to the representative
+     */
+    public double getMinSimilarity() {
+        double min = 1.0;
+        for (Member member : members) {
+            min = Math.min(min, member.getSimilarity());
+        }
+        return min;
+    }
+
+    @Override
+    public String toString() {
+        return "NearDuplicateCluster{" +
+                "stepType='" + stepType + '\'' +
+                ", keyword='" + keyword + '\'' +
+                ", representative='" + (representative != null ? representative.getText() : null) + '\'' +
+                ", size=" + members.size() +
+                ", merged=" + isMerged() +
+                '}';
+    }
+}
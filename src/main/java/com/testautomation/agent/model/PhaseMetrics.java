@@ -0,0 +1,59 @@
+package com.testautomation.agent.model;
+
+/**
+ * Measurements of one phase of a generation run
+ */
+public class PhaseMetrics {
+    private String name;
+    private long items;
+    private String itemUnit;
+    private long wallTimeNanos;
+    private long cpuTimeNanos;
+    private long allocatedBytes;
+
+    public PhaseMetrics() {}
+
+    public PhaseMetrics(String name) {
+        this.name = name;
+    }
+
+    // Getters and Setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    /**
+     * Number of items the phase produced or processed, described by the item unit
+     */
+    public long getItems() { return items; }
+    public void setItems(long items) { this.items = items; }
+
+    public String getItemUnit() { return itemUnit; }
+    public void setItemUnit(String itemUnit) { this.itemUnit = itemUnit; }
+
+    public long getWallTimeNanos() { return wallTimeNanos; }
+    public void setWallTimeNanos(long wallTimeNanos) { this.wallTimeNanos = wallTimeNanos; }
+
+    /**
+     * CPU time of the calling thread plus any worker threads, -1 when not supported by the JVM
+     */
+    public long getCpuTimeNanos() { return cpuTimeNanos; }
+    public void setCpuTimeNanos(long cpuTimeNanos) { this.cpuTimeNanos = cpuTimeNanos; }
+
+    /**
+     * Heap bytes allocated by the calling thread plus any worker threads, -1 when not supported by the JVM
+     */
+    public long getAllocatedBytes() { return allocatedBytes; }
+    public void setAllocatedBytes(long allocatedBytes) { this.allocatedBytes = allocatedBytes; }
+
+    @Override
+    public String toString() {
+        return "PhaseMetrics{" +
+                "name='" + name + '\'' +
+                ", items=" + items +
+                ", itemUnit='" + itemUnit + '\'' +
+                ", wallTimeNanos=" + wallTimeNanos +
+                ", cpuTimeNanos=" + cpuTimeNanos +
+                ", allocatedBytes=" + allocatedBytes +
+                '}';
+    }
+}
@@ -0,0 +1,57 @@
+package com.testautomation.agent.model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything the reports show, computed once and shared read-only by every report format.
+ * Steps, definitions and duplicates are unmodifiable views of the data of the run.
+ */
+public final class ReportModel {
+    private final String timestamp;
+    private final Map<String, Object> summary;
+    private final Map<String, List<FeatureStep>> allSteps;
+    private final int totalSteps;
+    private final Map<String, Map<String, Long>> typeCountsByFile;
+    private final Map<String, List<StepDefinition>> generatedDefinitions;
+    private final int totalDefinitions;
+    private final Map<FeatureStep, List<String>> duplicates;
+
+    public ReportModel(String timestamp, Map<String, Object> summary,
+                       Map<String, List<FeatureStep>> allSteps, int totalSteps,
+                       Map<String, Map<String, Long>> typeCountsByFile,
+                       Map<String, List<StepDefinition>> generatedDefinitions, int totalDefinitions,
+                       Map<FeatureStep, List<String>> duplicates) {
+        this.timestamp = timestamp;
+        this.summary = Collections.unmodifiableMap(summary);
+        this.allSteps = Collections.unmodifiableMap(allSteps);
+        this.totalSteps = totalSteps;
+        this.typeCountsByFile = Collections.unmodifiableMap(typeCountsByFile);
+        this.generatedDefinitions = Collections.unmodifiableMap(generatedDefinitions);
+        this.totalDefinitions = totalDefinitions;
+        this.duplicates = Collections.unmodifiableMap(duplicates);
+    }
+
+    public String getTimestamp() { return timestamp; }
+
+    /**
+     * Summary figures by label, in report order
+     */
+    public Map<String, Object> getSummary() { return summary; }
+
+    public Map<String, List<FeatureStep>> getAllSteps() { return allSteps; }
+
+    public int getTotalSteps() { return totalSteps; }
+
+    /**
+     * Number of steps of each step type, by feature file
+     */
+    public Map<String, Map<String, Long>> getTypeCountsByFile() { return typeCountsByFile; }
+
+    public Map<String, List<StepDefinition>> getGeneratedDefinitions() { return generatedDefinitions; }
+
+    public int getTotalDefinitions() { return totalDefinitions; }
+
+    public Map<FeatureStep, List<String>> getDuplicates() { return duplicates; }
+}
@@ -0,0 +1,57 @@
+package com.testautomation.agent.model;
+
+import java.util.Objects;
+
+/**
+ * A parameter found in step text, with its span in the source text
+ */
+public class StepParameter {
+
+    public enum Type {
+        QUOTED_STRING,
+        NUMBER
+    }
+
+    private final Type type;
+    private final String value;
+    private final int start; // inclusive, covers the opening quote of quoted strings
+    private final int end;   // exclusive, covers the closing quote of quoted strings
+
+    public StepParameter(Type type, String value, int start, int end) {
+        this.type = type;
+        this.value = value;
+        this.start = start;
+        this.end = end;
+    }
+
+    public Type getType() { return type; }
+
+    public String getValue() { return value; }
+
+    public int getStart() { return start; }
+
+    public int getEnd() { return end; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StepParameter that = (StepParameter) o;
+        return start == that.start && end == that.end && type == that.type && Objects.equals(value, that.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, value, start, end);
+    }
+
+    @Override
+    public String toString() {
+        return "StepParameter{" +
+                "type=" + type +
+                ", value='" + value + '\'' +
+                ", start=" + start +
+                ", end=" + end +
+                '}';
+    }
+}
@@ -0,0 +1,24 @@
+package com.testautomation.agent.model;
+
+/**
+ * The built-in step types. Step types added through the stepTypeKeywords configuration
+ * have no constant and are handled by name.
+ */
+public enum StepType {
+    WEB,
+    API,
+    MOBILE,
+    COMMON;
+
+    /**
+     * The step type with the given name, or null for a configured custom type
+     */
+    public static StepType fromName(String name) {
+        for (StepType stepType : values()) {
+            if (stepType.name().equals(name)) {
+                return stepType;
+            }
+        }
+        return null;
+    }
+}
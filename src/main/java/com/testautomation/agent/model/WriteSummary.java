@@ -0,0 +1,27 @@
+package com.testautomation.agent.model;
+
+/**
+ * Counts of step definition files written or left untouched by a run
+ */
+public class WriteSummary {
+    private int writtenFiles;
+    private int unchangedFiles;
+
+    public void recordWritten() { writtenFiles++; }
+
+    public void recordUnchanged() { unchangedFiles++; }
+
+    public int getWrittenFiles() { return writtenFiles; }
+
+    public int getUnchangedFiles() { return unchangedFiles; }
+
+    public int getTotalFiles() { return writtenFiles + unchangedFiles; }
+
+    @Override
+    public String toString() {
+        return "WriteSummary{" +
+                "writtenFiles=" + writtenFiles +
+                ", unchangedFiles=" + unchangedFiles +
+                '}';
+    }
+}
@@ -1,16 +1,32 @@
 package com.testautomation.agent.parser;
 
 import com.testautomation.agent.model.FeatureStep;
+import com.testautomation.agent.model.StepParameter;
+import com.testautomation.agent.utils.CompactStepStore;
+import com.testautomation.agent.utils.GenerationManifest;
+import com.testautomation.agent.utils.GeneratorEvents;
+import com.testautomation.agent.utils.MetricsRecorder;
+import com.testautomation.agent.utils.StepParameterExtractor;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 /**
  * Parser for Cucumber feature files to extract steps and parameters
@@ -18,17 +34,65 @@ import java.util.regex.Pattern;
 public class FeatureFileParser {
     private static final Logger logger = LoggerFactory.getLogger(FeatureFileParser.class);
     
-    private static final Pattern STEP_PATTERN = Pattern.compile("^(Given|When|Then|And|But)\\s+(.+)$");
-    private static final Pattern PARAMETER_PATTERN = Pattern.compile("\"([^\"]+)\"|(\\d+)");
-    private static final Pattern DATA_TABLE_PATTERN = Pattern.compile("^\\s*\\|.*\\|\\s*$");
-    private static final Pattern DOC_STRING_PATTERN = Pattern.compile("^\\s*\"\"\"");
+    private static final int COMPACT_BATCH_SIZE = 256;
+    
+    private final StepParameterExtractor parameterExtractor = new StepParameterExtractor();
+    private MetricsRecorder metricsRecorder;
+    
+    /**
+     * Report the CPU time and allocations of parallel parse workers to a recorder
+     */
+    public void setMetricsRecorder(MetricsRecorder metricsRecorder) {
+        this.metricsRecorder = metricsRecorder;
+    }
     
     /**
      * Parse all feature files in a directory
      */
     public Map<String, List<FeatureStep>> parseFeatureFiles(String directoryPath) throws IOException {
+        return parseFeatureFiles(directoryPath, 1);
+    }
+    
+    /**
+     * Parse all feature files in a directory using up to the given number of worker threads
+     */
+    public Map<String, List<FeatureStep>> parseFeatureFiles(String directoryPath, int parseThreads) throws IOException {
+        return parseFeatureFiles(directoryPath, parseThreads, null);
+    }
+    
+    /**
+     * Parse all feature files in a directory, reusing the manifest's cached steps for
+     * files whose content is unchanged. A null manifest parses every file.
+     */
+    public Map<String, List<FeatureStep>> parseFeatureFiles(String directoryPath, int parseThreads,
+                                                           GenerationManifest manifest) throws IOException {
+        File directory = new File(directoryPath);
+        if (!directory.exists() || !directory.isDirectory()) {
+            throw new IOException("Directory does not exist: " + directoryPath);
+        }
+        
+        Collection<File> featureFiles = FileUtils.listFiles(directory, new String[]{"feature"}, true);
+        
+        if (manifest != null) {
+            manifest.retainFeatures(featureFiles.stream().map(File::getAbsolutePath).collect(Collectors.toList()));
+        }
+        
         Map<String, List<FeatureStep>> allSteps = new HashMap<>();
+        for (Map.Entry<File, List<FeatureStep>> entry : parseFeatureFiles(featureFiles, parseThreads, manifest).entrySet()) {
+            allSteps.put(entry.getKey().getName(), entry.getValue());
+        }
         
+        return allSteps;
+    }
+    
+    /**
+     * Parse all feature files in a directory into compact storage. Files are parsed in
+     * batches and each batch is added to the store before the next is parsed, so the
+     * FeatureStep objects of the whole corpus are never in memory at once. Files are
+     * added in the order parseFeatureFiles returns them.
+     */
+    public CompactStepStore parseFeatureFilesCompact(String directoryPath, int parseThreads,
+                                                    GenerationManifest manifest) throws IOException {
         File directory = new File(directoryPath);
         if (!directory.exists() || !directory.isDirectory()) {
             throw new IOException("Directory does not exist: " + directoryPath);
@@ -36,49 +100,194 @@ public class FeatureFileParser {
         
         Collection<File> featureFiles = FileUtils.listFiles(directory, new String[]{"feature"}, true);
         
+        if (manifest != null) {
+            manifest.retainFeatures(featureFiles.stream().map(File::getAbsolutePath).collect(Collectors.toList()));
+        }
+        
+        // Key files by name like parseFeatureFiles does, which decides the order of the files
+        Map<String, File> filesByName = new HashMap<>();
+        for (File featureFile : featureFiles) {
+            filesByName.put(featureFile.getName(), featureFile);
+        }
+        
+        CompactStepStore store = new CompactStepStore();
+        int batchSize = Math.max(COMPACT_BATCH_SIZE, parseThreads * 16);
+        List<File> batch = new ArrayList<>(batchSize);
+        for (File featureFile : filesByName.values()) {
+            batch.add(featureFile);
+            if (batch.size() == batchSize) {
+                addToStore(store, batch, parseThreads, manifest);
+                batch.clear();
+            }
+        }
+        addToStore(store, batch, parseThreads, manifest);
+        store.trimToSize();
+        
+        logger.debug("Stored {} steps, {} unique, from {} feature files", store.getTotalStepCount(),
+            store.getStepCount(), store.getFeatureFileCount());
+        return store;
+    }
+    
+    private void addToStore(CompactStepStore store, List<File> batch, int parseThreads,
+                            GenerationManifest manifest) throws IOException {
+        for (Map.Entry<File, List<FeatureStep>> entry : parseFeatureFiles(batch, parseThreads, manifest).entrySet()) {
+            store.addFeatureFile(entry.getKey().getName(), entry.getValue());
+        }
+    }
+    
+    /**
+     * Parse the given feature files. The result follows the order of the given collection;
+     * files that fail to parse are logged and left out.
+     */
+    public Map<File, List<FeatureStep>> parseFeatureFiles(Collection<File> featureFiles, int parseThreads,
+                                                         GenerationManifest manifest) throws IOException {
+        if (parseThreads > 1 && featureFiles.size() > 1) {
+            return parseFeatureFilesInParallel(featureFiles, parseThreads, manifest);
+        }
+        
+        Map<File, List<FeatureStep>> parsedFiles = new LinkedHashMap<>();
+        
         for (File featureFile : featureFiles) {
             try {
-                List<FeatureStep> steps = parseFeatureFile(featureFile.getAbsolutePath());
-                allSteps.put(featureFile.getName(), steps);
+                List<FeatureStep> steps = parseFeatureFile(featureFile, manifest);
+                parsedFiles.put(featureFile, steps);
                 logger.info("Parsed {} steps from {}", steps.size(), featureFile.getName());
             } catch (IOException e) {
                 logger.error("Error parsing feature file: {}", featureFile.getName(), e);
             }
         }
         
-        return allSteps;
+        return parsedFiles;
+    }
+    
+    /**
+     * Parse feature files on a fixed worker pool. Results are collected per file and then
+     * assembled in the given order so the result is identical to the serial path.
+     */
+    private Map<File, List<FeatureStep>> parseFeatureFilesInParallel(Collection<File> featureFiles,
+                                                                   int parseThreads,
+                                                                   GenerationManifest manifest) throws IOException {
+        Map<File, List<FeatureStep>> parsedFiles = new ConcurrentHashMap<>();
+        List<Callable<Void>> tasks = new ArrayList<>(featureFiles.size());
+        
+        for (File featureFile : featureFiles) {
+            tasks.add(() -> {
+                MetricsRecorder.WorkerUsage usage = metricsRecorder != null ? metricsRecorder.startWorker() : null;
+                try {
+                    List<FeatureStep> steps = parseFeatureFile(featureFile, manifest);
+                    parsedFiles.put(featureFile, steps);
+                    logger.info("Parsed {} steps from {}", steps.size(), featureFile.getName());
+                } catch (IOException e) {
+                    logger.error("Error parsing feature file: {}", featureFile.getName(), e);
+                } finally {
+                    if (usage != null) {
+                        usage.finish();
+                    }
+                }
+                return null;
+            });
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parseThreads, featureFiles.size()));
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing feature files", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error parsing feature files", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        Map<File, List<FeatureStep>> orderedFiles = new LinkedHashMap<>();
+        for (File featureFile : featureFiles) {
+            List<FeatureStep> steps = parsedFiles.get(featureFile);
+            if (steps != null) {
+                orderedFiles.put(featureFile, steps);
+            }
+        }
+        
+        logger.debug("Parsed {} feature files using {} threads", orderedFiles.size(), parseThreads);
+        return orderedFiles;
+    }
+    
+    /**
+     * Parse a feature file, or take its steps from the manifest when its content hash is unchanged
+     */
+    private List<FeatureStep> parseFeatureFile(File featureFile, GenerationManifest manifest) throws IOException {
+        GeneratorEvents.FeatureFileParsed event = new GeneratorEvents.FeatureFileParsed();
+        event.begin();
+        
+        List<FeatureStep> steps = null;
+        boolean cached = false;
+        
+        if (manifest == null) {
+            steps = parseFeatureFile(featureFile.getAbsolutePath());
+        } else {
+            byte[] content = Files.readAllBytes(featureFile.toPath());
+            String contentHash = GenerationManifest.hash(content);
+            String featurePath = featureFile.getAbsolutePath();
+            
+            steps = manifest.getFeatureSteps(featurePath, contentHash);
+            if (steps != null) {
+                logger.debug("Reusing cached steps for unchanged feature file {}", featureFile.getName());
+                cached = true;
+            } else {
+                try (Reader reader = new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8)) {
+                    steps = parseFeatureFile(reader, featureFile.getName());
+                }
+                manifest.recordFeature(featurePath, contentHash, steps);
+            }
+        }
+        
+        if (event.shouldCommit()) {
+            event.fileName = featureFile.getName();
+            event.stepCount = steps.size();
+            event.bytes = featureFile.length();
+            event.cached = cached;
+            event.commit();
+        }
+        return steps;
     }
     
     /**
      * Parse a single feature file
      */
     public List<FeatureStep> parseFeatureFile(String filePath) throws IOException {
+        File file = new File(filePath);
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return parseFeatureFile(reader, file.getName());
+        }
+    }
+    
+    /**
+     * Parse feature file content from a reader
+     */
+    public List<FeatureStep> parseFeatureFile(Reader reader, String featureFileName) throws IOException {
+        return parseTokens(new GherkinTokenizer(reader), featureFileName);
+    }
+    
+    /**
+     * Collect the steps inside scenarios from a token stream
+     */
+    private List<FeatureStep> parseTokens(GherkinTokenizer tokenizer, String currentFeatureFile) throws IOException {
         List<FeatureStep> steps = new ArrayList<>();
-        List<String> lines = FileUtils.readLines(new File(filePath), StandardCharsets.UTF_8);
-        
-        String currentFeatureFile = new File(filePath).getName();
         boolean inScenario = false;
-        boolean inDataTable = false;
         boolean inDocString = false;
-        StringBuilder docStringContent = new StringBuilder();
         
-        for (int i = 0; i < lines.size(); i++) {
-            String line = lines.get(i).trim();
-            int lineNumber = i + 1;
-            
-            // Skip empty lines and comments
-            if (line.isEmpty() || line.startsWith("#")) {
-                continue;
-            }
-            
+        GherkinTokenizer.TokenType token;
+        while ((token = tokenizer.next()) != GherkinTokenizer.TokenType.EOF) {
             // Check for scenario start
-            if (line.startsWith("Scenario:") || line.startsWith("Scenario Outline:")) {
+            if (token == GherkinTokenizer.TokenType.SCENARIO) {
                 inScenario = true;
                 continue;
             }
             
             // Check for feature end
-            if (line.startsWith("Feature:") && inScenario) {
+            if (token == GherkinTokenizer.TokenType.FEATURE && inScenario) {
                 inScenario = false;
             }
             
@@ -87,42 +296,28 @@ public class FeatureFileParser {
                 continue;
             }
             
-            // Handle doc strings
-            if (DOC_STRING_PATTERN.matcher(line).matches()) {
-                if (inDocString) {
-                    inDocString = false;
-                    // Process the collected doc string content
-                    docStringContent = new StringBuilder();
-                } else {
-                    inDocString = true;
-                }
+            // Skip doc string content
+            if (token == GherkinTokenizer.TokenType.DOC_STRING_SEPARATOR) {
+                inDocString = !inDocString;
                 continue;
             }
             
             if (inDocString) {
-                docStringContent.append(line).append("\n");
                 continue;
             }
             
-            // Handle data tables
-            if (DATA_TABLE_PATTERN.matcher(line).matches()) {
-                inDataTable = true;
-                continue;
-            } else if (inDataTable && !DATA_TABLE_PATTERN.matcher(line).matches()) {
-                inDataTable = false;
-            }
-            
             // Parse step
-            Matcher stepMatcher = STEP_PATTERN.matcher(line);
-            if (stepMatcher.matches()) {
-                String keyword = stepMatcher.group(1);
-                String stepText = stepMatcher.group(2);
+            if (token == GherkinTokenizer.TokenType.STEP) {
+                String keyword = tokenizer.getKeyword();
+                String stepText = tokenizer.getStepText();
                 
                 // Extract parameters from step text
-                List<String> parameters = extractParameters(stepText);
+                List<StepParameter> parameterSpans = parameterExtractor.extract(stepText);
+                List<String> parameters = extractParameters(stepText, parameterSpans);
                 
                 // Create feature step
-                FeatureStep step = new FeatureStep(keyword, stepText, parameters, currentFeatureFile, lineNumber);
+                FeatureStep step = new FeatureStep(keyword, stepText, parameters, parameterSpans,
+                    currentFeatureFile, tokenizer.getLineNumber());
                 steps.add(step);
                 
                 logger.debug("Parsed step: {} {}", keyword, stepText);
@@ -133,23 +328,14 @@ public class FeatureFileParser {
     }
     
     /**
-     * Extract parameters from step text
+     * Extract parameters from step text, given the quoted string and number spans found in it
      */
-    private List<String> parameters = new ArrayList<>();
-    
-    private List<String> extractParameters(String stepText) {
-        List<String> parameters = new ArrayList<>();
-        
-        // Extract quoted strings
-        Matcher quotedMatcher = Pattern.compile("\"([^\"]+)\"").matcher(stepText);
-        while (quotedMatcher.find()) {
-            parameters.add(quotedMatcher.group(1));
-        }
+    public static List<String> extractParameters(String stepText, List<StepParameter> parameterSpans) {
+        List<String> parameters = new ArrayList<>(parameterSpans.size() + 1);
         
-        // Extract numbers
-        Matcher numberMatcher = Pattern.compile("\\b(\\d+)\\b").matcher(stepText);
-        while (numberMatcher.find()) {
-            parameters.add(numberMatcher.group(1));
+        // Quoted strings and numbers, in source order
+        for (StepParameter parameter : parameterSpans) {
+            parameters.add(parameter.getValue());
         }
         
         // Extract data table references
@@ -0,0 +1,241 @@
+package com.testautomation.agent.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Single-pass, character-level tokenizer for Cucumber feature files.
+ * Lines are read into a reusable buffer and classified in place; a String is only
+ * created when the text of a step is requested. Empty lines and comments are skipped.
+ */
+public class GherkinTokenizer {
+
+    public enum TokenType {
+        FEATURE,
+        SCENARIO,
+        STEP,
+        DATA_TABLE_ROW,
+        DOC_STRING_SEPARATOR,
+        OTHER,
+        EOF
+    }
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final String[] STEP_KEYWORDS = {"Given", "When", "Then", "And", "But"};
+
+    private final Reader reader;
+    private char[] buffer;
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+    private boolean skipLineFeed;
+
+    private TokenType tokenType;
+    private int lineNumber;
+    private int lineStart;
+    private int lineEnd;
+    private String keyword;
+    private int stepTextStart;
+
+    public GherkinTokenizer(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    public GherkinTokenizer(Reader reader, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * Tokenize an in-memory buffer. Array-backed buffers are read in place without copying.
+     */
+    public GherkinTokenizer(CharBuffer source) {
+        this.reader = null;
+        this.endOfInput = true;
+        if (source.hasArray()) {
+            this.buffer = source.array();
+            this.position = source.arrayOffset() + source.position();
+            this.limit = source.arrayOffset() + source.limit();
+        } else {
+            this.buffer = new char[source.remaining()];
+            source.duplicate().get(this.buffer);
+            this.limit = this.buffer.length;
+        }
+    }
+
+    /**
+     * Advance to the next significant line and return its token type
+     */
+    public TokenType next() throws IOException {
+        while (readLine()) {
+            lineNumber++;
+
+            // Trim the same characters as String.trim()
+            while (lineStart < lineEnd && buffer[lineStart] <= ' ') {
+                lineStart++;
+            }
+            while (lineEnd > lineStart && buffer[lineEnd - 1] <= ' ') {
+                lineEnd--;
+            }
+
+            // Skip empty lines and comments
+            if (lineStart == lineEnd || buffer[lineStart] == '#') {
+                continue;
+            }
+
+            tokenType = classifyLine();
+            return tokenType;
+        }
+
+        tokenType = TokenType.EOF;
+        return tokenType;
+    }
+
+    public TokenType getTokenType() { return tokenType; }
+
+    /**
+     * 1-based line number of the current token, counting every physical line
+     */
+    public int getLineNumber() { return lineNumber; }
+
+    /**
+     * Step keyword of the current STEP token (Given, When, Then, And, But)
+     */
+    public String getKeyword() {
+        return tokenType == TokenType.STEP ? keyword : null;
+    }
+
+    /**
+     * Step text of the current STEP token, without the keyword
+     */
+    public String getStepText() {
+        return tokenType == TokenType.STEP ? new String(buffer, stepTextStart, lineEnd - stepTextStart) : null;
+    }
+
+    /**
+     * Classify the current trimmed line
+     */
+    private TokenType classifyLine() {
+        if (lineStartsWith("Scenario:") || lineStartsWith("Scenario Outline:")) {
+            return TokenType.SCENARIO;
+        }
+        if (lineStartsWith("Feature:")) {
+            return TokenType.FEATURE;
+        }
+
+        int length = lineEnd - lineStart;
+        if (length == 3 && buffer[lineStart] == '"' && buffer[lineStart + 1] == '"' && buffer[lineStart + 2] == '"') {
+            return TokenType.DOC_STRING_SEPARATOR;
+        }
+        if (length >= 2 && buffer[lineStart] == '|' && buffer[lineEnd - 1] == '|') {
+            return TokenType.DATA_TABLE_ROW;
+        }
+
+        for (String candidate : STEP_KEYWORDS) {
+            if (lineStartsWith(candidate)) {
+                int textStart = lineStart + candidate.length();
+                int cursor = textStart;
+                while (cursor < lineEnd && isKeywordSeparator(buffer[cursor])) {
+                    cursor++;
+                }
+                if (cursor > textStart && cursor < lineEnd) {
+                    keyword = candidate;
+                    stepTextStart = cursor;
+                    return TokenType.STEP;
+                }
+                return TokenType.OTHER;
+            }
+        }
+
+        return TokenType.OTHER;
+    }
+
+    private boolean lineStartsWith(String prefix) {
+        int length = prefix.length();
+        if (lineEnd - lineStart < length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer[lineStart + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isKeywordSeparator(char c) {
+        return c == ' ' || c == '\t' || c == '\u000B' || c == '\f';
+    }
+
+    /**
+     * Locate the next physical line in the buffer. Lines end with \n, \r or \r\n.
+     */
+    private boolean readLine() throws IOException {
+        if (skipLineFeed) {
+            skipLineFeed = false;
+            if ((position < limit || fill()) && buffer[position] == '\n') {
+                position++;
+            }
+        }
+
+        int scan = position;
+        while (true) {
+            if (scan == limit) {
+                int scanned = scan - position;
+                if (!fill()) {
+                    if (scanned == 0) {
+                        return false;
+                    }
+                    lineStart = position;
+                    lineEnd = limit;
+                    position = limit;
+                    return true;
+                }
+                scan = position + scanned;
+                continue;
+            }
+
+            char c = buffer[scan];
+            if (c == '\n' || c == '\r') {
+                lineStart = position;
+                lineEnd = scan;
+                position = scan + 1;
+                skipLineFeed = c == '\r';
+                return true;
+            }
+            scan++;
+        }
+    }
+
+    /**
+     * Compact unconsumed characters to the front of the buffer, growing it when a
+     * single line fills it, and read more input
+     */
+    private boolean fill() throws IOException {
+        if (reader == null || endOfInput) {
+            return false;
+        }
+
+        int remaining = limit - position;
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+            position = 0;
+            limit = remaining;
+        } else if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+
+        int read = reader.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            endOfInput = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+}
@@ -7,8 +7,12 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Manages code templates for step definition generation
@@ -16,10 +20,18 @@ import java.util.Map;
 public class CodeTemplateManager {
     private static final Logger logger = LoggerFactory.getLogger(CodeTemplateManager.class);
     
+    /**
+     * Variables the generator provides to step body templates
+     */
+    public static final Set<String> TEMPLATE_VARIABLES = Collections.unmodifiableSet(new LinkedHashSet<>(
+        Arrays.asList("methodName", "stepText", "stepType", "parameters", "loggerStatement")));
+    
     private final Map<String, String> templates;
+    private final Map<String, CompiledTemplate> compiledTemplates;
     
     public CodeTemplateManager() {
         this.templates = new HashMap<>();
+        this.compiledTemplates = new HashMap<>();
         initializeDefaultTemplates();
     }
     
@@ -28,28 +40,28 @@ public class CodeTemplateManager {
      */
     private void initializeDefaultTemplates() {
         // Web step template
-        templates.put("WEB", 
+        putTemplate("WEB", 
             "// TODO: Implement web automation logic\n" +
             "// Example: driver.findElement(By.xpath(\"//button[@id='submit']\")).click();\n" +
             "logger.info(\"Executing web step: {}\");\n" +
             "throw new UnsupportedOperationException(\"Step not implemented yet\");");
         
         // API step template
-        templates.put("API", 
+        putTemplate("API", 
             "// TODO: Implement API automation logic\n" +
             "// Example: response = request.when().get(\"/api/endpoint\");\n" +
             "logger.info(\"Executing API step: {}\");\n" +
             "throw new UnsupportedOperationException(\"Step not implemented yet\");");
         
         // Mobile step template
-        templates.put("MOBILE", 
+        putTemplate("MOBILE", 
             "// TODO: Implement mobile automation logic\n" +
             "// Example: driver.findElement(By.id(\"button\")).click();\n" +
             "logger.info(\"Executing mobile step: {}\");\n" +
             "throw new UnsupportedOperationException(\"Step not implemented yet\");");
         
         // Common step template
-        templates.put("COMMON", 
+        putTemplate("COMMON", 
             "// TODO: Implement common step logic\n" +
             "logger.info(\"Executing common step: {}\");\n" +
             "throw new UnsupportedOperationException(\"Step not implemented yet\");");
@@ -62,6 +74,13 @@ public class CodeTemplateManager {
         return templates.getOrDefault(stepType, templates.get("COMMON"));
     }
     
+    /**
+     * Get the compiled template for step type
+     */
+    public CompiledTemplate getCompiledTemplate(String stepType) {
+        return compiledTemplates.getOrDefault(stepType, compiledTemplates.get("COMMON"));
+    }
+    
     /**
      * Load templates from directory
      */
@@ -80,30 +99,37 @@ public class CodeTemplateManager {
         for (File templateFile : templateFiles) {
             String stepType = templateFile.getName().replace(".template", "").toUpperCase();
             String content = FileUtils.readFileToString(templateFile, StandardCharsets.UTF_8);
-            templates.put(stepType, content);
+            putTemplate(stepType, content);
             logger.info("Loaded template for step type: {}", stepType);
         }
     }
     
     /**
-     * Process template with variables
+     * Process template with variables. Compiles the template on every call; use
+     * getCompiledTemplate for templates that are rendered repeatedly.
      */
     public String processTemplate(String template, Map<String, String> variables) {
-        String processedTemplate = template;
-        
-        for (Map.Entry<String, String> entry : variables.entrySet()) {
-            String placeholder = "{" + entry.getKey() + "}";
-            processedTemplate = processedTemplate.replace(placeholder, entry.getValue());
-        }
-        
-        return processedTemplate;
+        return CompiledTemplate.compile(template, null).render(variables);
     }
     
     /**
      * Add custom template
      */
     public void addTemplate(String stepType, String template) {
-        templates.put(stepType.toUpperCase(), template);
+        putTemplate(stepType.toUpperCase(), template);
+    }
+    
+    /**
+     * Store and compile a template, reporting placeholders that no variable fills
+     */
+    private void putTemplate(String stepType, String template) {
+        CompiledTemplate compiled = CompiledTemplate.compile(template, TEMPLATE_VARIABLES);
+        if (compiled.hasUnknownPlaceholders()) {
+            logger.warn("Template for step type {} has unknown placeholders {}, which are left as they are; " +
+                "known placeholders are {}", stepType, compiled.getUnknownPlaceholders(), TEMPLATE_VARIABLES);
+        }
+        templates.put(stepType, template);
+        compiledTemplates.put(stepType, compiled);
     }
     
     /**
@@ -0,0 +1,460 @@
+package com.testautomation.agent.utils;
+
+import com.testautomation.agent.model.FeatureStep;
+import com.testautomation.agent.model.StepParameter;
+import com.testautomation.agent.model.StepType;
+import com.testautomation.agent.parser.FeatureFileParser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Compact storage of parsed steps for very large corpora.
+ *
+ * Each distinct step text is stored once: as UTF-8 in a shared byte array, with its
+ * parameters as spans into that text and its keyword as a small id. Texts that differ
+ * only in parameter values share one distinct step, which keeps the step type and the
+ * occurrences as an array of feature file ids. Feature file names are interned into ids
+ * and each feature file keeps its steps as arrays of text ids and line numbers.
+ * FeatureStep objects are only created on demand.
+ */
+public class CompactStepStore {
+
+    private static final int NONE = 0;
+
+    // Interned names
+    private final List<String> featureFiles = new ArrayList<>();
+    private final Map<String, Integer> featureFileIds = new HashMap<>();
+    private final List<String> keywords = new ArrayList<>();
+    private final Map<String, Integer> keywordIds = new HashMap<>();
+    private final List<String> stepTypes = new ArrayList<>();
+    private final Map<String, Integer> stepTypeIds = new HashMap<>();
+
+    // Distinct texts by id, in order of first occurrence
+    private int textCount;
+    private byte[] textBytes = new byte[64 * 1024];
+    private int textLength;
+    private int[] textOffsets = new int[1025];
+    private long[] spans = new long[1024]; // start, end and type of each parameter
+    private int spanLength;
+    private int[] spanOffsets = new int[1025];
+    private byte[] textKeywords = new byte[1024];
+    private int[] textHashes = new int[1024];
+    private int[] textSteps = new int[1024];
+
+    // Distinct steps by id, in order of first occurrence
+    private int stepCount;
+    private int[] stepTexts = new int[1024]; // text of the first occurrence
+    private byte[] stepTypesById = new byte[1024];
+    private int[] hashes = new int[1024];
+    private int[] firstFiles = new int[1024];
+    private int[] firstLines = new int[1024];
+    private int[] occurrenceCounts = new int[1024];
+    private int[][] laterOccurrenceFiles = new int[1024][]; // files of all but the first occurrence
+
+    // Open addressing tables of text id + 1 and step id + 1 by hash, at most 3/4 full
+    private int[] textTable = new int[2048];
+    private int[] stepTable = new int[2048];
+
+    // Steps of each feature file
+    private final List<int[]> fileTextIds = new ArrayList<>();
+    private final List<int[]> fileLineNumbers = new ArrayList<>();
+    private long totalStepCount;
+
+    public CompactStepStore() {
+        for (StepType stepType : StepType.values()) {
+            intern(stepType.name(), stepTypes, stepTypeIds);
+        }
+    }
+
+    /**
+     * Add the parsed steps of a feature file. The steps are not retained.
+     */
+    public void addFeatureFile(String featureFile, List<FeatureStep> steps) {
+        if (featureFileIds.containsKey(featureFile)) {
+            throw new IllegalArgumentException("Feature file already added: " + featureFile);
+        }
+        int fileId = intern(featureFile, featureFiles, featureFileIds);
+
+        int[] textIds = new int[steps.size()];
+        int[] lineNumbers = new int[steps.size()];
+        for (int i = 0; i < steps.size(); i++) {
+            FeatureStep step = steps.get(i);
+            textIds[i] = addOccurrence(step, fileId);
+            lineNumbers[i] = step.getLineNumber();
+        }
+        fileTextIds.add(textIds);
+        fileLineNumbers.add(lineNumbers);
+        totalStepCount += steps.size();
+    }
+
+    private int addOccurrence(FeatureStep step, int fileId) {
+        byte[] text = step.getText().getBytes(StandardCharsets.UTF_8);
+        int textId = findText(step.getKeyword(), text, textHash(step));
+        int stepId = textId >= 0 ? textSteps[textId] : findStep(step);
+        if (stepId >= 0) {
+            int count = occurrenceCounts[stepId];
+            int[] laterFiles = laterOccurrenceFiles[stepId];
+            if (laterFiles == null) {
+                laterFiles = new int[2];
+            } else if (laterFiles.length == count - 1) {
+                laterFiles = Arrays.copyOf(laterFiles, laterFiles.length * 2);
+            }
+            laterFiles[count - 1] = fileId;
+            laterOccurrenceFiles[stepId] = laterFiles;
+            occurrenceCounts[stepId] = count + 1;
+        } else {
+            stepId = addStep(step, fileId);
+        }
+        if (textId < 0) {
+            textId = addText(step, text, stepId);
+        }
+        if (occurrenceCounts[stepId] == 1) {
+            stepTexts[stepId] = textId;
+        }
+        return textId;
+    }
+
+    private int addText(FeatureStep step, byte[] text, int stepId) {
+        if (textCount == textHashes.length) {
+            growTexts();
+        }
+        if (textLength + text.length > textBytes.length) {
+            textBytes = Arrays.copyOf(textBytes, Math.max(textBytes.length * 2, textLength + text.length));
+        }
+
+        int textId = textCount++;
+        System.arraycopy(text, 0, textBytes, textLength, text.length);
+        textLength += text.length;
+        textOffsets[textId + 1] = textLength;
+        addSpans(step.getParameterSpans());
+        spanOffsets[textId + 1] = spanLength;
+        textKeywords[textId] = (byte) internSmall(step.getKeyword(), keywords, keywordIds);
+        textHashes[textId] = textHash(step);
+        textSteps[textId] = stepId;
+
+        if (textCount * 4 > textTable.length * 3) {
+            textTable = new int[textTable.length * 2];
+            for (int i = 0; i < textCount; i++) {
+                insert(textTable, textHashes[i], i);
+            }
+        } else {
+            insert(textTable, textHashes[textId], textId);
+        }
+        return textId;
+    }
+
+    private int addStep(FeatureStep step, int fileId) {
+        if (stepCount == hashes.length) {
+            growSteps();
+        }
+
+        int stepId = stepCount++;
+        stepTypesById[stepId] = (byte) internSmall(step.getStepType(), stepTypes, stepTypeIds);
+        hashes[stepId] = step.hashCode();
+        firstFiles[stepId] = fileId;
+        firstLines[stepId] = step.getLineNumber();
+        occurrenceCounts[stepId] = 1;
+
+        if (stepCount * 4 > stepTable.length * 3) {
+            stepTable = new int[stepTable.length * 2];
+            for (int i = 0; i < stepCount; i++) {
+                insert(stepTable, hashes[i], i);
+            }
+        } else {
+            insert(stepTable, hashes[stepId], stepId);
+        }
+        return stepId;
+    }
+
+    /**
+     * Id of the stored step equal to the given step, or -1
+     */
+    public int find(FeatureStep step) {
+        if (step.getText() == null) {
+            return -1;
+        }
+        int textId = findText(step.getKeyword(), step.getText().getBytes(StandardCharsets.UTF_8), textHash(step));
+        return textId >= 0 ? textSteps[textId] : findStep(step);
+    }
+
+    private int findText(String keyword, byte[] text, int hash) {
+        int mask = textTable.length - 1;
+        for (int slot = spread(hash) & mask; textTable[slot] != NONE; slot = (slot + 1) & mask) {
+            int textId = textTable[slot] - 1;
+            if (textHashes[textId] == hash && keywords.get(textKeywords[textId] & 0xFF).equals(keyword) &&
+                Arrays.equals(textBytes, textOffsets[textId], textOffsets[textId + 1], text, 0, text.length)) {
+                return textId;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find a step with the same wording but other parameter values
+     */
+    private int findStep(FeatureStep step) {
+        int hash = step.hashCode();
+        int mask = stepTable.length - 1;
+        for (int slot = spread(hash) & mask; stepTable[slot] != NONE; slot = (slot + 1) & mask) {
+            int stepId = stepTable[slot] - 1;
+            if (hashes[stepId] == hash && getKeyword(stepId).equals(step.getKeyword())) {
+                int textId = stepTexts[stepId];
+                String text = getTextById(textId);
+                if (FeatureStep.normalizeText(text, unpackSpans(text, textId))
+                        .equals(step.getNormalizedText())) {
+                    return stepId;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int textHash(FeatureStep step) {
+        return Objects.hashCode(step.getKeyword()) * 31 + step.getText().hashCode();
+    }
+
+    private static void insert(int[] table, int hash, int id) {
+        int mask = table.length - 1;
+        int slot = spread(hash) & mask;
+        while (table[slot] != NONE) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = id + 1;
+    }
+
+    private void growTexts() {
+        int capacity = Math.max(1024, textHashes.length * 2);
+        textOffsets = Arrays.copyOf(textOffsets, capacity + 1);
+        spanOffsets = Arrays.copyOf(spanOffsets, capacity + 1);
+        textKeywords = Arrays.copyOf(textKeywords, capacity);
+        textHashes = Arrays.copyOf(textHashes, capacity);
+        textSteps = Arrays.copyOf(textSteps, capacity);
+    }
+
+    private void growSteps() {
+        int capacity = Math.max(1024, hashes.length * 2);
+        stepTexts = Arrays.copyOf(stepTexts, capacity);
+        stepTypesById = Arrays.copyOf(stepTypesById, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+        firstFiles = Arrays.copyOf(firstFiles, capacity);
+        firstLines = Arrays.copyOf(firstLines, capacity);
+        occurrenceCounts = Arrays.copyOf(occurrenceCounts, capacity);
+        laterOccurrenceFiles = Arrays.copyOf(laterOccurrenceFiles, capacity);
+    }
+
+    /**
+     * Release the spare capacity of all arrays once every feature file is added
+     */
+    public void trimToSize() {
+        textBytes = Arrays.copyOf(textBytes, textLength);
+        textOffsets = Arrays.copyOf(textOffsets, textCount + 1);
+        spans = Arrays.copyOf(spans, spanLength);
+        spanOffsets = Arrays.copyOf(spanOffsets, textCount + 1);
+        textKeywords = Arrays.copyOf(textKeywords, textCount);
+        textHashes = Arrays.copyOf(textHashes, textCount);
+        textSteps = Arrays.copyOf(textSteps, textCount);
+        stepTexts = Arrays.copyOf(stepTexts, stepCount);
+        stepTypesById = Arrays.copyOf(stepTypesById, stepCount);
+        hashes = Arrays.copyOf(hashes, stepCount);
+        firstFiles = Arrays.copyOf(firstFiles, stepCount);
+        firstLines = Arrays.copyOf(firstLines, stepCount);
+        occurrenceCounts = Arrays.copyOf(occurrenceCounts, stepCount);
+        laterOccurrenceFiles = Arrays.copyOf(laterOccurrenceFiles, stepCount);
+        for (int stepId = 0; stepId < stepCount; stepId++) {
+            int[] laterFiles = laterOccurrenceFiles[stepId];
+            if (laterFiles != null && laterFiles.length > occurrenceCounts[stepId] - 1) {
+                laterOccurrenceFiles[stepId] = Arrays.copyOf(laterFiles, occurrenceCounts[stepId] - 1);
+            }
+        }
+    }
+
+    // Distinct steps
+
+    public int getStepCount() { return stepCount; }
+
+    public long getTotalStepCount() { return totalStepCount; }
+
+    public int getHash(int stepId) { return hashes[stepId]; }
+
+    /**
+     * Text of the first occurrence of a step
+     */
+    public String getText(int stepId) { return getTextById(stepTexts[stepId]); }
+
+    public String getKeyword(int stepId) { return keywords.get(textKeywords[stepTexts[stepId]] & 0xFF); }
+
+    /**
+     * Number of distinct step texts, counting each set of parameter values
+     */
+    public int getTextCount() { return textCount; }
+
+    public String getStepTypeName(int stepId) { return stepTypes.get(stepTypesById[stepId] & 0xFF); }
+
+    /**
+     * The built-in step type of a step, or null for a configured custom type
+     */
+    public StepType getStepType(int stepId) {
+        int stepTypeId = stepTypesById[stepId] & 0xFF;
+        return stepTypeId < StepType.values().length ? StepType.values()[stepTypeId] : null;
+    }
+
+    public List<StepParameter> getParameterSpans(int stepId) {
+        return unpackSpans(getText(stepId), stepTexts[stepId]);
+    }
+
+    public int getOccurrenceCount(int stepId) { return occurrenceCounts[stepId]; }
+
+    /**
+     * Feature file id of each occurrence of a step, in the order the files were added
+     */
+    public int getOccurrenceFileId(int stepId, int occurrence) {
+        return occurrence == 0 ? firstFiles[stepId] : laterOccurrenceFiles[stepId][occurrence - 1];
+    }
+
+    /**
+     * Feature file names of all occurrences of a step, as a view
+     */
+    public List<String> getOccurrenceFiles(int stepId) {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                if (index < 0 || index >= occurrenceCounts[stepId]) {
+                    throw new IndexOutOfBoundsException("Index: " + index);
+                }
+                return featureFiles.get(getOccurrenceFileId(stepId, index));
+            }
+
+            @Override
+            public int size() {
+                return occurrenceCounts[stepId];
+            }
+        };
+    }
+
+    /**
+     * A new FeatureStep for the first occurrence of a step
+     */
+    public FeatureStep toFeatureStep(int stepId) {
+        return toFeatureStep(stepTexts[stepId], featureFiles.get(firstFiles[stepId]), firstLines[stepId]);
+    }
+
+    private FeatureStep toFeatureStep(int textId, String featureFile, int lineNumber) {
+        String text = getTextById(textId);
+        List<StepParameter> parameterSpans = unpackSpans(text, textId);
+        return new FeatureStep(keywords.get(textKeywords[textId] & 0xFF), text,
+            FeatureFileParser.extractParameters(text, parameterSpans), parameterSpans, featureFile, lineNumber);
+    }
+
+    private String getTextById(int textId) {
+        int start = textOffsets[textId];
+        return new String(textBytes, start, textOffsets[textId + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    // Feature files
+
+    public int getFeatureFileCount() { return featureFiles.size(); }
+
+    public String getFeatureFile(int fileId) { return featureFiles.get(fileId); }
+
+    /**
+     * Id of a feature file, or -1 when it was not added
+     */
+    public int getFeatureFileId(String featureFile) {
+        Integer fileId = featureFileIds.get(featureFile);
+        return fileId != null ? fileId : -1;
+    }
+
+    public int getFeatureFileStepCount(int fileId) { return fileTextIds.get(fileId).length; }
+
+    public int getFeatureFileStepId(int fileId, int index) { return textSteps[fileTextIds.get(fileId)[index]]; }
+
+    /**
+     * Steps of a feature file in source order, as a view that creates FeatureStep objects on access
+     */
+    public List<FeatureStep> getFeatureFileSteps(int fileId) {
+        int[] textIds = fileTextIds.get(fileId);
+        int[] lineNumbers = fileLineNumbers.get(fileId);
+        String featureFile = featureFiles.get(fileId);
+        return new FeatureStepList(textIds, lineNumbers, featureFile);
+    }
+
+    private final class FeatureStepList extends AbstractList<FeatureStep> implements RandomAccess {
+        private final int[] textIds;
+        private final int[] lineNumbers;
+        private final String featureFile;
+
+        private FeatureStepList(int[] textIds, int[] lineNumbers, String featureFile) {
+            this.textIds = textIds;
+            this.lineNumbers = lineNumbers;
+            this.featureFile = featureFile;
+        }
+
+        @Override
+        public FeatureStep get(int index) {
+            return toFeatureStep(textIds[index], featureFile, lineNumbers[index]);
+        }
+
+        @Override
+        public int size() {
+            return textIds.length;
+        }
+    }
+
+    // Helpers
+
+    private static int intern(String name, List<String> names, Map<String, Integer> ids) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            ids.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Intern a keyword or step type, which are stored in a byte per step
+     */
+    private static int internSmall(String name, List<String> names, Map<String, Integer> ids) {
+        int id = intern(name, names, ids);
+        if (id > 0xFF) {
+            throw new IllegalStateException("Too many distinct values for compact storage: " + name);
+        }
+        return id;
+    }
+
+    /**
+     * Append the spans of a text, each packed into a long as start, end and type
+     */
+    private void addSpans(List<StepParameter> parameterSpans) {
+        if (parameterSpans == null) {
+            return;
+        }
+        if (spanLength + parameterSpans.size() > spans.length) {
+            spans = Arrays.copyOf(spans, Math.max(spans.length * 2, spanLength + parameterSpans.size()));
+        }
+        for (StepParameter span : parameterSpans) {
+            spans[spanLength++] = (long) span.getStart() << 32 | (long) span.getEnd() << 8 | span.getType().ordinal();
+        }
+    }
+
+    private List<StepParameter> unpackSpans(String text, int textId) {
+        int from = spanOffsets[textId];
+        int to = spanOffsets[textId + 1];
+        List<StepParameter> parameterSpans = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            int start = (int) (spans[i] >>> 32);
+            int end = (int) spans[i] >>> 8;
+            StepParameter.Type type = StepParameter.Type.values()[(int) spans[i] & 0xFF];
+            String value = type == StepParameter.Type.QUOTED_STRING ?
+                text.substring(start + 1, end - 1) : text.substring(start, end);
+            parameterSpans.add(new StepParameter(type, value, start, end));
+        }
+        return parameterSpans;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
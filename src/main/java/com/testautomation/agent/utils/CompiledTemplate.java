@@ -0,0 +1,120 @@
+package com.testautomation.agent.utils;
+
+import java.util.*;
+
+/**
+ * A code template split once into literal text and {name} placeholders, so it can be
+ * rendered in a single pass. A placeholder is a non-empty name without braces or
+ * whitespace between braces; "{}" and the braces of code blocks stay literal text.
+ */
+public final class CompiledTemplate {
+
+    private final String source;
+    private final String[] literals; // one more than placeholders: text before, between and after them
+    private final String[] placeholders;
+    private final Set<String> unknownPlaceholders;
+    private final int literalLength;
+
+    private CompiledTemplate(String source, List<String> literals, List<String> placeholders,
+                             Set<String> unknownPlaceholders) {
+        this.source = source;
+        this.literals = literals.toArray(new String[0]);
+        this.placeholders = placeholders.toArray(new String[0]);
+        this.unknownPlaceholders = Collections.unmodifiableSet(unknownPlaceholders);
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Compile a template. Placeholders that are not among the known variables are
+     * collected as unknown and rendered as they are; a null set accepts every name.
+     */
+    public static CompiledTemplate compile(String template, Collection<String> knownVariables) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        Set<String> unknownPlaceholders = new LinkedHashSet<>();
+
+        int literalStart = 0;
+        int open = template.indexOf('{');
+        while (open >= 0) {
+            int close = placeholderEnd(template, open);
+            if (close < 0) {
+                open = template.indexOf('{', open + 1);
+                continue;
+            }
+            String name = template.substring(open + 1, close);
+            if (knownVariables != null && !knownVariables.contains(name)) {
+                unknownPlaceholders.add(name);
+            } else {
+                literals.add(template.substring(literalStart, open));
+                placeholders.add(name);
+                literalStart = close + 1;
+            }
+            open = template.indexOf('{', close + 1);
+        }
+        literals.add(template.substring(literalStart));
+
+        return new CompiledTemplate(template, literals, placeholders, unknownPlaceholders);
+    }
+
+    /**
+     * Index of the brace closing a placeholder opened at the given index, or -1
+     */
+    private static int placeholderEnd(String template, int open) {
+        int i = open + 1;
+        while (i < template.length()) {
+            char c = template.charAt(i);
+            if (c == '}') {
+                return i > open + 1 ? i : -1;
+            }
+            if (c == '{' || Character.isWhitespace(c)) {
+                return -1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * Render the template with the given variables. A placeholder without a value is
+     * rendered as it is.
+     */
+    public String render(Map<String, String> variables) {
+        StringBuilder rendered = new StringBuilder(literalLength + placeholders.length * 32);
+        render(variables, rendered);
+        return rendered.toString();
+    }
+
+    /**
+     * Append the rendered template to a builder, which may be reused across calls
+     */
+    public void render(Map<String, String> variables, StringBuilder rendered) {
+        for (int i = 0; i < placeholders.length; i++) {
+            rendered.append(literals[i]);
+            String value = variables.get(placeholders[i]);
+            if (value != null) {
+                rendered.append(value);
+            } else {
+                rendered.append('{').append(placeholders[i]).append('}');
+            }
+        }
+        rendered.append(literals[placeholders.length]);
+    }
+
+    public String getSource() { return source; }
+
+    /**
+     * Names of the placeholders that are substituted, in template order
+     */
+    public List<String> getPlaceholders() { return Collections.unmodifiableList(Arrays.asList(placeholders)); }
+
+    /**
+     * Placeholders whose name is not a known variable, which are left in the output
+     */
+    public Set<String> getUnknownPlaceholders() { return unknownPlaceholders; }
+
+    public boolean hasUnknownPlaceholders() { return !unknownPlaceholders.isEmpty(); }
+}
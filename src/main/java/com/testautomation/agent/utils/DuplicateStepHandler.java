@@ -1,12 +1,12 @@
 package com.testautomation.agent.utils;
 
 import com.testautomation.agent.model.FeatureStep;
+import com.testautomation.agent.model.NearDuplicateCluster;
 import com.testautomation.agent.model.StepDefinition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Handles duplicate step detection and organization
@@ -14,57 +14,65 @@ import java.util.stream.Collectors;
 public class DuplicateStepHandler {
     private static final Logger logger = LoggerFactory.getLogger(DuplicateStepHandler.class);
     
+    private static final int MAX_REPORTED_CLUSTERS = 20;
+    
     /**
      * Detect duplicate steps across feature files
      */
     public Map<FeatureStep, List<String>> detectDuplicates(Map<String, List<FeatureStep>> allSteps) {
-        Map<FeatureStep, List<String>> duplicateSteps = new HashMap<>();
-        Map<FeatureStep, List<String>> stepOccurrences = new HashMap<>();
-        
-        // Count occurrences of each step
-        for (Map.Entry<String, List<FeatureStep>> entry : allSteps.entrySet()) {
-            String featureFile = entry.getKey();
-            List<FeatureStep> steps = entry.getValue();
-            
-            for (FeatureStep step : steps) {
-                stepOccurrences.computeIfAbsent(step, k -> new ArrayList<>()).add(featureFile);
-            }
-        }
-        
-        // Find duplicates
-        for (Map.Entry<FeatureStep, List<String>> entry : stepOccurrences.entrySet()) {
-            if (entry.getValue().size() > 1) {
-                duplicateSteps.put(entry.getKey(), entry.getValue());
-            }
-        }
-        
+        return detectDuplicates(StepOccurrenceIndex.build(allSteps));
+    }
+    
+    /**
+     * Detect duplicate steps across feature files, indexing steps on up to the given number of threads
+     */
+    public Map<FeatureStep, List<String>> detectDuplicates(Map<String, List<FeatureStep>> allSteps, int threads) {
+        return detectDuplicates(StepOccurrenceIndex.build(allSteps, threads));
+    }
+    
+    /**
+     * Detect duplicate steps using an existing occurrence index
+     */
+    public Map<FeatureStep, List<String>> detectDuplicates(StepOccurrenceIndex index) {
+        Map<FeatureStep, List<String>> duplicateSteps = index.getDuplicates();
         logger.info("Found {} duplicate steps across feature files", duplicateSteps.size());
         return duplicateSteps;
     }
     
+    /**
+     * Detect clusters of distinct steps with nearly the same wording, using MinHash/LSH
+     * over token shingles so large step sets are not compared pair by pair
+     */
+    public List<NearDuplicateCluster> detectNearDuplicates(StepOccurrenceIndex index, double threshold) {
+        NearDuplicateDetector detector = new NearDuplicateDetector(threshold, NearDuplicateDetector.DEFAULT_SHINGLE_SIZE);
+        return detector.detect(index);
+    }
+    
     /**
      * Organize steps to avoid duplicates and consolidate common steps
      */
     public Map<String, List<FeatureStep>> organizeSteps(Map<String, List<FeatureStep>> allSteps) {
+        return organizeSteps(StepOccurrenceIndex.build(allSteps));
+    }
+    
+    /**
+     * Organize steps using an existing occurrence index
+     */
+    public Map<String, List<FeatureStep>> organizeSteps(StepOccurrenceIndex index) {
         Map<String, List<FeatureStep>> organizedSteps = new HashMap<>();
         
-        // Get all unique steps (this now properly handles duplicates across feature files)
-        Set<FeatureStep> uniqueSteps = getAllUniqueSteps(allSteps);
-        
-        // Detect steps that appear in multiple feature files
-        Map<FeatureStep, List<String>> duplicateSteps = detectDuplicates(allSteps);
-        
         // Separate steps into categories
         List<FeatureStep> commonSteps = new ArrayList<>();
         List<FeatureStep> webSteps = new ArrayList<>();
         List<FeatureStep> apiSteps = new ArrayList<>();
         List<FeatureStep> mobileSteps = new ArrayList<>();
         
-        for (FeatureStep step : uniqueSteps) {
+        for (FeatureStep step : index.getUniqueSteps()) {
             // If step appears in multiple feature files, move it to COMMON
-            if (duplicateSteps.containsKey(step)) {
+            List<String> occurrences = index.getOccurrences(step);
+            if (occurrences.size() > 1) {
                 logger.debug("Moving step '{}' to COMMON as it appears in multiple files: {}", 
-                    step.getText(), duplicateSteps.get(step));
+                    step.getText(), occurrences);
                 commonSteps.add(step);
             } else {
                 // Otherwise, keep it in its original category
@@ -210,6 +218,47 @@ public class DuplicateStepHandler {
         return validationErrors;
     }
     
+    /**
+     * Generate near-duplicate report with the similarity of each step to its cluster representative
+     */
+    public String generateNearDuplicateReport(List<NearDuplicateCluster> clusters) {
+        StringBuilder report = new StringBuilder();
+        
+        report.append("=== NEAR-DUPLICATE STEPS ===\n\n");
+        
+        if (clusters.isEmpty()) {
+            report.append("No near-duplicate steps found.\n");
+            return report.toString();
+        }
+        
+        int merged = 0;
+        for (NearDuplicateCluster cluster : clusters) {
+            if (cluster.isMerged()) {
+                merged++;
+            }
+        }
+        report.append(String.format("%d clusters found, %d merged\n\n", clusters.size(), merged));
+        
+        for (int i = 0; i < clusters.size() && i < MAX_REPORTED_CLUSTERS; i++) {
+            NearDuplicateCluster cluster = clusters.get(i);
+            report.append(String.format("%d. %s %s steps (%d):\n", i + 1, cluster.getStepType(),
+                cluster.getKeyword(), cluster.size()));
+            for (NearDuplicateCluster.Member member : cluster.getMembers()) {
+                report.append(String.format("   %.2f  %s\n", member.getSimilarity(), member.getStep().getText()));
+            }
+            if (cluster.isMerged()) {
+                report.append("   Merged into: ").append(cluster.getMergedAnnotation()).append("\n");
+            }
+            report.append("\n");
+        }
+        
+        if (clusters.size() > MAX_REPORTED_CLUSTERS) {
+            report.append(String.format("... and %d more clusters\n", clusters.size() - MAX_REPORTED_CLUSTERS));
+        }
+        
+        return report.toString();
+    }
+    
     /**
      * Suggest step organization strategy
      */
@@ -249,17 +298,4 @@ public class DuplicateStepHandler {
         
         return suggestions.toString();
     }
-    
-    // Helper methods
-    private Set<FeatureStep> getAllUniqueSteps(Map<String, List<FeatureStep>> allSteps) {
-        Set<FeatureStep> uniqueSteps = new HashSet<>();
-        for (List<FeatureStep> steps : allSteps.values()) {
-            uniqueSteps.addAll(steps);
-        }
-        return uniqueSteps;
-    }
-    
-    private Map<String, List<FeatureStep>> groupStepsByType(Set<FeatureStep> steps) {
-        return steps.stream().collect(Collectors.groupingBy(FeatureStep::getStepType));
-    }
 }
@@ -0,0 +1,279 @@
+package com.testautomation.agent.utils;
+
+import com.testautomation.agent.model.CorpusSpec;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Generates deterministic, seeded feature file corpora for scale testing and benchmarks.
+ * Every feature file is derived from the seed and its own index only, so a single file
+ * can be regenerated without generating the files before it.
+ * The step vocabulary uses the WEB, API and MOBILE keywords of the default step type
+ * classification, plus COMMON steps that match none of them.
+ */
+public class FeatureCorpusGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(FeatureCorpusGenerator.class);
+
+    /**
+     * Marker written into generated corpus directories; only such directories are overwritten
+     */
+    public static final String MARKER_FILE = ".generated-corpus";
+
+    // %s becomes a quoted value, %d a number
+    private static final String[] WEB_STEPS = {
+        "I navigate to the \"%s\" page",
+        "I click on the \"%s\" element",
+        "I input \"%s\" into the \"%s\" field",
+        "I verify the \"%s\" element is shown",
+        "the page title should be \"%s\""
+    };
+
+    private static final String[] API_STEPS = {
+        "I send a GET request to \"%s\"",
+        "the response status should be %d",
+        "the API returns %d records",
+        "the response body contains \"%s\""
+    };
+
+    private static final String[] MOBILE_STEPS = {
+        "I open the mobile app",
+        "I tap \"%s\" on the device",
+        "the app shows the \"%s\" screen",
+        "I rotate the device %d times"
+    };
+
+    private static final String[] COMMON_STEPS = {
+        "I wait for %d seconds",
+        "the user \"%s\" is logged in",
+        "the system has %d pending orders",
+        "I remember the value \"%s\""
+    };
+
+    private static final String[][] STEP_VOCABULARY = {WEB_STEPS, API_STEPS, MOBILE_STEPS, COMMON_STEPS};
+
+    private static final String[] DATA_TABLE_STEPS = {
+        "the following users exist",
+        "I fill the form with the following data table"
+    };
+
+    private static final String[] DOC_STRING_STEPS = {
+        "the request body is",
+        "the following multiline text is shown"
+    };
+
+    private static final String[] VALUES = {"alice", "bob", "checkout", "dashboard", "orders", "settings", "/users"};
+
+    private static final String[] FOLLOW_UP_KEYWORDS = {"When", "Then", "And"};
+
+    // No vowels, so generated tokens never contain a step type keyword
+    private static final String TOKEN_ALPHABET = "bcdfghjklmnpqrstvwxz";
+
+    private final CorpusSpec spec;
+    private final long stepsPerFileBound;
+
+    public FeatureCorpusGenerator(CorpusSpec spec) {
+        if (spec.getFeatureFiles() < 0 || spec.getScenariosPerFile() < 1 || spec.getStepsPerScenario() < 1 ||
+                spec.getFilesPerDirectory() < 1) {
+            throw new IllegalArgumentException("Invalid corpus specification: " + spec);
+        }
+        if (spec.getDuplicateRatio() < 0.0 || spec.getDuplicateRatio() > 1.0) {
+            throw new IllegalArgumentException("Duplicate ratio must be between 0 and 1: " + spec.getDuplicateRatio());
+        }
+
+        this.spec = spec;
+        this.stepsPerFileBound = (long) spec.getScenariosPerFile() * spec.getStepsPerScenario() +
+            spec.getDataTablesPerFile() + spec.getDocStringsPerFile() + 1;
+    }
+
+    public CorpusSpec getSpec() { return spec; }
+
+    /**
+     * Path of a feature file relative to the corpus root
+     */
+    public String getRelativePath(int index) {
+        return String.format("area_%04d%sfeature_%06d.feature",
+            index / spec.getFilesPerDirectory(), File.separator, index);
+    }
+
+    /**
+     * All feature files keyed by relative path, in index order
+     */
+    public Map<String, String> generate() {
+        Map<String, String> featureFiles = new LinkedHashMap<>();
+        for (int i = 0; i < spec.getFeatureFiles(); i++) {
+            featureFiles.put(getRelativePath(i), generateFeatureFile(i));
+        }
+        return featureFiles;
+    }
+
+    /**
+     * Write the corpus to a directory. An existing directory is only replaced when it is
+     * empty or holds a previously generated corpus.
+     */
+    public void writeTo(File directory) throws IOException {
+        if (directory.exists()) {
+            String[] existing = directory.list();
+            if (existing == null) {
+                throw new IOException("Not a directory: " + directory);
+            }
+            if (existing.length > 0 && !new File(directory, MARKER_FILE).exists()) {
+                throw new IOException("Refusing to overwrite " + directory + ": it does not hold a generated corpus");
+            }
+            FileUtils.cleanDirectory(directory);
+        }
+        FileUtils.forceMkdir(directory);
+        FileUtils.writeStringToFile(new File(directory, MARKER_FILE), spec.toString() + "\n", StandardCharsets.UTF_8);
+
+        for (int i = 0; i < spec.getFeatureFiles(); i++) {
+            File featureFile = new File(directory, getRelativePath(i));
+            FileUtils.forceMkdirParent(featureFile);
+            FileUtils.writeStringToFile(featureFile, generateFeatureFile(i), StandardCharsets.UTF_8);
+        }
+        logger.info("Generated {} feature files in {}", spec.getFeatureFiles(), directory);
+    }
+
+    /**
+     * Content of a single feature file
+     */
+    public String generateFeatureFile(int index) {
+        Random random = new Random(spec.getSeed() * 1_000_003L + index);
+        StepCounter counter = new StepCounter((long) index * stepsPerFileBound);
+
+        int outlines = Math.min(spec.getOutlinesPerFile(), spec.getScenariosPerFile());
+        int scenarios = spec.getScenariosPerFile() - outlines;
+
+        // Attach data tables and doc strings to random regular scenarios
+        int[] dataTables = new int[Math.max(scenarios, 1)];
+        int[] docStrings = new int[Math.max(scenarios, 1)];
+        if (scenarios > 0) {
+            for (int i = 0; i < spec.getDataTablesPerFile(); i++) {
+                dataTables[random.nextInt(scenarios)]++;
+            }
+            for (int i = 0; i < spec.getDocStringsPerFile(); i++) {
+                docStrings[random.nextInt(scenarios)]++;
+            }
+        }
+
+        StringBuilder content = new StringBuilder(spec.getScenariosPerFile() * spec.getStepsPerScenario() * 48);
+        content.append("Feature: Generated feature ").append(index).append("\n\n");
+
+        for (int s = 0; s < scenarios; s++) {
+            content.append("  Scenario: Generated scenario ").append(s).append("\n");
+            appendSteps(content, random, counter, false);
+            for (int t = 0; t < dataTables[s]; t++) {
+                appendStep(content, "And", nextStep(pick(random, DATA_TABLE_STEPS), random, counter, false));
+                content.append("      | name | role |\n");
+                content.append("      | ").append(pick(random, VALUES)).append(" | admin |\n");
+                content.append("      | ").append(pick(random, VALUES)).append(" | viewer |\n");
+            }
+            for (int d = 0; d < docStrings[s]; d++) {
+                appendStep(content, "And", nextStep(pick(random, DOC_STRING_STEPS), random, counter, false));
+                content.append("      \"\"\"\n");
+                content.append("      Generated text for ").append(pick(random, VALUES)).append("\n");
+                content.append("      \"\"\"\n");
+            }
+            content.append("\n");
+        }
+
+        for (int o = 0; o < outlines; o++) {
+            content.append("  Scenario Outline: Generated outline ").append(o).append("\n");
+            appendSteps(content, random, counter, true);
+            content.append("\n    Examples:\n");
+            content.append("      | value | count |\n");
+            for (int e = 0; e < spec.getExamplesPerOutline(); e++) {
+                content.append("      | ").append(pick(random, VALUES)).append(" | ")
+                       .append(random.nextInt(100)).append(" |\n");
+            }
+            content.append("\n");
+        }
+
+        return content.toString();
+    }
+
+    private void appendSteps(StringBuilder content, Random random, StepCounter counter, boolean outline) {
+        for (int k = 0; k < spec.getStepsPerScenario(); k++) {
+            String keyword = k == 0 ? "Given" : pick(random, FOLLOW_UP_KEYWORDS);
+            String template = pick(random, pick(random, STEP_VOCABULARY));
+            appendStep(content, keyword, nextStep(template, random, counter, outline));
+        }
+    }
+
+    private static void appendStep(StringBuilder content, String keyword, String text) {
+        content.append("    ").append(keyword).append(' ').append(text).append("\n");
+    }
+
+    /**
+     * With the configured probability a step that only varies in its parameters, so it
+     * recurs throughout the corpus; otherwise a step unique to the corpus
+     */
+    private String nextStep(String template, Random random, StepCounter counter, boolean outline) {
+        long id = counter.next();
+        String text = fillTemplate(template, random, outline);
+        if (random.nextDouble() < spec.getDuplicateRatio()) {
+            return text;
+        }
+        return text + " in the " + token(id) + " area";
+    }
+
+    /**
+     * Replace %s with a quoted value and %d with a number, or with outline placeholders
+     */
+    private static String fillTemplate(String template, Random random, boolean outline) {
+        StringBuilder text = new StringBuilder(template.length() + 16);
+        int i = 0;
+        while (i < template.length()) {
+            char c = template.charAt(i);
+            if (c == '%' && i + 1 < template.length()) {
+                char conversion = template.charAt(i + 1);
+                if (conversion == 's') {
+                    text.append(outline ? "<value>" : pick(random, VALUES));
+                } else {
+                    text.append(outline ? "<count>" : String.valueOf(random.nextInt(500)));
+                }
+                i += 2;
+            } else {
+                text.append(c);
+                i++;
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Encode an id as a word of consonants
+     */
+    private static String token(long id) {
+        StringBuilder token = new StringBuilder();
+        int base = TOKEN_ALPHABET.length();
+        do {
+            token.append(TOKEN_ALPHABET.charAt((int) (id % base)));
+            id /= base;
+        } while (id > 0);
+        return token.toString();
+    }
+
+    private static <T> T pick(Random random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * Ids for unique steps, disjoint between feature files
+     */
+    private static class StepCounter {
+        private long next;
+
+        StepCounter(long first) {
+            this.next = first;
+        }
+
+        long next() {
+            return next++;
+        }
+    }
+}
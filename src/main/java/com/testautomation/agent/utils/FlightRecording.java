@@ -0,0 +1,68 @@
+package com.testautomation.agent.utils;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+
+/**
+ * A Java Flight Recorder recording of the whole run, started by --jfr=<file>.
+ * Uses the JDK "profile" settings plus all generator events, and is written to the
+ * destination when closed or, for runs that are interrupted (watch mode), on JVM exit.
+ */
+public class FlightRecording implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecording.class);
+
+    private static final String SETTINGS = "profile";
+
+    private final Recording recording;
+    private final Path destination;
+
+    private FlightRecording(Recording recording, Path destination) {
+        this.recording = recording;
+        this.destination = destination;
+    }
+
+    /**
+     * Start recording to the given .jfr file
+     */
+    public static FlightRecording start(String destination) throws IOException {
+        Path path = Paths.get(destination).toAbsolutePath();
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(SETTINGS);
+        } catch (ParseException e) {
+            throw new IOException("Could not load JFR settings: " + SETTINGS, e);
+        }
+
+        Recording recording = new Recording(configuration);
+        recording.setName("step-generator");
+        recording.enable(GeneratorEvents.FeatureFileParsed.class);
+        recording.enable(GeneratorEvents.StepTypeGenerated.class);
+        recording.enable(GeneratorEvents.ClassFileWritten.class);
+        recording.enable(GeneratorEvents.ReportGenerated.class);
+        recording.setDestination(path);
+        recording.setDumpOnExit(true);
+        recording.start();
+
+        logger.info("Flight recording started: {}", path);
+        return new FlightRecording(recording, path);
+    }
+
+    public Path getDestination() { return destination; }
+
+    /**
+     * Stop the recording, which writes it to the destination
+     */
+    @Override
+    public void close() {
+        recording.stop();
+        recording.close();
+        logger.info("Flight recording written: {}", destination);
+    }
+}
@@ -0,0 +1,248 @@
+package com.testautomation.agent.utils;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.testautomation.agent.model.FeatureStep;
+import com.testautomation.agent.model.StepDefinition;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persistent record of a previous generation run, stored in the output directory.
+ * It keeps the content hash and parsed steps of every feature file and a fingerprint of
+ * every generated class, so the next run only parses changed feature files and only
+ * rewrites step definition classes whose content changed.
+ */
+public class GenerationManifest {
+    private static final Logger logger = LoggerFactory.getLogger(GenerationManifest.class);
+
+    public static final String FILE_NAME = ".step-generator-manifest.json";
+
+    // Bump whenever parsing or generation changes in a way that invalidates cached results
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Cached parse result of one feature file
+     */
+    public static class FeatureEntry {
+        private String contentHash;
+        private List<FeatureStep> steps;
+
+        public FeatureEntry() {}
+
+        public FeatureEntry(String contentHash, List<FeatureStep> steps) {
+            this.contentHash = contentHash;
+            this.steps = steps;
+        }
+
+        public String getContentHash() { return contentHash; }
+        public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+
+        public List<FeatureStep> getSteps() { return steps; }
+        public void setSteps(List<FeatureStep> steps) { this.steps = steps; }
+    }
+
+    /**
+     * Fingerprint of one generated class file and the file state it was written with
+     */
+    public static class ClassEntry {
+        private String fingerprint;
+        private long length;
+        private long lastModified;
+
+        public ClassEntry() {}
+
+        public ClassEntry(String fingerprint, long length, long lastModified) {
+            this.fingerprint = fingerprint;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        public String getFingerprint() { return fingerprint; }
+        public void setFingerprint(String fingerprint) { this.fingerprint = fingerprint; }
+
+        public long getLength() { return length; }
+        public void setLength(long length) { this.length = length; }
+
+        public long getLastModified() { return lastModified; }
+        public void setLastModified(long lastModified) { this.lastModified = lastModified; }
+    }
+
+    /**
+     * On-disk layout of the manifest
+     */
+    public static class Snapshot {
+        private int version;
+        private Map<String, FeatureEntry> features = new HashMap<>();
+        private Map<String, ClassEntry> classes = new HashMap<>();
+
+        public int getVersion() { return version; }
+        public void setVersion(int version) { this.version = version; }
+
+        public Map<String, FeatureEntry> getFeatures() { return features; }
+        public void setFeatures(Map<String, FeatureEntry> features) { this.features = features; }
+
+        public Map<String, ClassEntry> getClasses() { return classes; }
+        public void setClasses(Map<String, ClassEntry> classes) { this.classes = classes; }
+    }
+
+    private final File manifestFile;
+    private final ObjectMapper objectMapper;
+    private final Map<String, FeatureEntry> features = new ConcurrentHashMap<>();
+    private final Map<String, ClassEntry> classes = new ConcurrentHashMap<>();
+
+    private final AtomicInteger reusedFeatures = new AtomicInteger();
+    private final AtomicInteger parsedFeatures = new AtomicInteger();
+
+    private GenerationManifest(File manifestFile) {
+        this.manifestFile = manifestFile;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    /**
+     * Load the manifest from an output directory. A missing, unreadable or outdated
+     * manifest yields an empty one, which makes the run a full generation.
+     */
+    public static GenerationManifest load(String outputDirectory) {
+        GenerationManifest manifest = new GenerationManifest(new File(outputDirectory, FILE_NAME));
+        if (!manifest.manifestFile.exists()) {
+            logger.info("No generation manifest found, running full generation");
+            return manifest;
+        }
+
+        try {
+            Snapshot snapshot = manifest.objectMapper.readValue(manifest.manifestFile, Snapshot.class);
+            if (snapshot.getVersion() != FORMAT_VERSION) {
+                logger.info("Generation manifest version {} is outdated, running full generation",
+                    snapshot.getVersion());
+                return manifest;
+            }
+            manifest.features.putAll(snapshot.getFeatures());
+            manifest.classes.putAll(snapshot.getClasses());
+            logger.info("Loaded generation manifest with {} feature files and {} classes",
+                manifest.features.size(), manifest.classes.size());
+        } catch (IOException e) {
+            logger.warn("Could not read generation manifest {}, running full generation", manifest.manifestFile, e);
+        }
+        return manifest;
+    }
+
+    /**
+     * Write the manifest back to the output directory
+     */
+    public void save() throws IOException {
+        Snapshot snapshot = new Snapshot();
+        snapshot.setVersion(FORMAT_VERSION);
+        snapshot.setFeatures(new TreeMap<>(features));
+        snapshot.setClasses(new TreeMap<>(classes));
+
+        FileUtils.forceMkdirParent(manifestFile);
+        objectMapper.writeValue(manifestFile, snapshot);
+        logger.info("Generation manifest saved: {}", manifestFile.getPath());
+    }
+
+    /**
+     * Cached steps of a feature file, or null when the file is new or its content changed
+     */
+    public List<FeatureStep> getFeatureSteps(String featurePath, String contentHash) {
+        FeatureEntry entry = features.get(featurePath);
+        if (entry != null && contentHash.equals(entry.getContentHash()) && entry.getSteps() != null) {
+            reusedFeatures.incrementAndGet();
+            return entry.getSteps();
+        }
+        return null;
+    }
+
+    /**
+     * Record the parse result of a feature file
+     */
+    public void recordFeature(String featurePath, String contentHash, List<FeatureStep> steps) {
+        features.put(featurePath, new FeatureEntry(contentHash, steps));
+        parsedFeatures.incrementAndGet();
+    }
+
+    /**
+     * Forget feature files that no longer exist
+     */
+    public void retainFeatures(Collection<String> featurePaths) {
+        features.keySet().retainAll(new HashSet<>(featurePaths));
+    }
+
+    /**
+     * Whether a class file was written from the same definitions and is untouched since
+     */
+    public boolean isClassUpToDate(File classFile, String fingerprint) {
+        ClassEntry entry = classes.get(classFile.getPath());
+        return entry != null && fingerprint.equals(entry.getFingerprint()) &&
+            classFile.isFile() && classFile.length() == entry.getLength() &&
+            classFile.lastModified() == entry.getLastModified();
+    }
+
+    /**
+     * Record the current state of a generated class file
+     */
+    public void recordClass(File classFile, String fingerprint) {
+        classes.put(classFile.getPath(), new ClassEntry(fingerprint, classFile.length(), classFile.lastModified()));
+    }
+
+    public int getReusedFeatureCount() { return reusedFeatures.get(); }
+
+    public int getParsedFeatureCount() { return parsedFeatures.get(); }
+
+    /**
+     * SHA-256 of feature file content
+     */
+    public static String hash(byte[] content) {
+        MessageDigest digest = newDigest();
+        return toHex(digest.digest(content));
+    }
+
+    /**
+     * SHA-256 over everything that ends up in a generated class
+     */
+    public static String fingerprint(List<StepDefinition> definitions) {
+        MessageDigest digest = newDigest();
+        for (StepDefinition definition : definitions) {
+            update(digest, definition.getPackageName());
+            update(digest, definition.getClassName());
+            update(digest, definition.getAnnotation());
+            update(digest, definition.getMethodSignature());
+            update(digest, definition.getMethodBody());
+        }
+        return toHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
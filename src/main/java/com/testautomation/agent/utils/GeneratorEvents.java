@@ -0,0 +1,91 @@
+package com.testautomation.agent.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder events for the generator hot paths. They cost next to nothing
+ * unless a recording is running (see --jfr), and show up in JMC under "Step Generator".
+ * Usage: begin(), do the work, then fill in the fields and commit() if shouldCommit().
+ */
+public final class GeneratorEvents {
+
+    private static final String CATEGORY = "Step Generator";
+
+    private GeneratorEvents() {}
+
+    @Name("com.testautomation.agent.FeatureFileParsed")
+    @Label("Feature File Parsed")
+    @Category({CATEGORY, "Parser"})
+    @Description("A feature file was parsed or taken from the incremental manifest")
+    public static class FeatureFileParsed extends Event {
+        @Label("File Name")
+        public String fileName;
+
+        @Label("Step Count")
+        public int stepCount;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        @Label("Cached")
+        @Description("Steps were reused from the manifest instead of parsed")
+        public boolean cached;
+    }
+
+    @Name("com.testautomation.agent.StepTypeGenerated")
+    @Label("Step Type Generated")
+    @Category({CATEGORY, "Generator"})
+    @Description("Step definitions were generated for one step type")
+    public static class StepTypeGenerated extends Event {
+        @Label("Step Type")
+        public String stepType;
+
+        @Label("Step Count")
+        public int stepCount;
+    }
+
+    @Name("com.testautomation.agent.ClassFileWritten")
+    @Label("Class File Written")
+    @Category({CATEGORY, "Generator"})
+    @Description("A step definition class was rendered and written, or found unchanged")
+    public static class ClassFileWritten extends Event {
+        @Label("File Name")
+        public String fileName;
+
+        @Label("Step Count")
+        public int stepCount;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        @Label("Written")
+        @Description("False when the file was already up to date and left alone")
+        public boolean written;
+    }
+
+    @Name("com.testautomation.agent.ReportGenerated")
+    @Label("Report Generated")
+    @Category({CATEGORY, "Reports"})
+    @Description("A report was produced")
+    public static class ReportGenerated extends Event {
+        @Label("Format")
+        public String format;
+
+        @Label("File Name")
+        public String fileName;
+
+        @Label("Step Count")
+        public int stepCount;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+    }
+}
@@ -0,0 +1,208 @@
+package com.testautomation.agent.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.testautomation.agent.model.PhaseMetrics;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records wall time, CPU time, allocated bytes and item counts per phase of a run.
+ * CPU time and allocations are measured per thread with ThreadMXBean: the thread that
+ * runs a phase is measured directly and worker threads report their own share.
+ */
+public class MetricsRecorder {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsRecorder.class);
+
+    private static final long NOT_SUPPORTED = -1;
+
+    private final ThreadMXBean threadMXBean;
+    private final com.sun.management.ThreadMXBean allocationMXBean;
+    private final boolean cpuTimeSupported;
+    private final boolean allocationSupported;
+    private final List<PhaseMetrics> phases = new ArrayList<>();
+
+    private volatile Phase activePhase;
+
+    public MetricsRecorder() {
+        this.threadMXBean = ManagementFactory.getThreadMXBean();
+        this.cpuTimeSupported = threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+
+        com.sun.management.ThreadMXBean extendedMXBean = null;
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            extendedMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (!extendedMXBean.isThreadAllocatedMemorySupported() || !extendedMXBean.isThreadAllocatedMemoryEnabled()) {
+                extendedMXBean = null;
+            }
+        }
+        this.allocationMXBean = extendedMXBean;
+        this.allocationSupported = extendedMXBean != null;
+    }
+
+    /**
+     * A phase in progress, closed when the phase ends
+     */
+    public class Phase implements AutoCloseable {
+        private final PhaseMetrics metrics;
+        private final long startNanos;
+        private final long startCpuNanos;
+        private final long startAllocatedBytes;
+        private final LongAdder workerCpuNanos = new LongAdder();
+        private final LongAdder workerAllocatedBytes = new LongAdder();
+
+        private Phase(String name) {
+            this.metrics = new PhaseMetrics(name);
+            this.startCpuNanos = currentThreadCpuTime();
+            this.startAllocatedBytes = currentThreadAllocatedBytes();
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * Record how many items the phase handled
+         */
+        public void setItems(long items, String itemUnit) {
+            metrics.setItems(items);
+            metrics.setItemUnit(itemUnit);
+        }
+
+        @Override
+        public void close() {
+            metrics.setWallTimeNanos(System.nanoTime() - startNanos);
+            metrics.setCpuTimeNanos(cpuTimeSupported ?
+                currentThreadCpuTime() - startCpuNanos + workerCpuNanos.sum() : NOT_SUPPORTED);
+            metrics.setAllocatedBytes(allocationSupported ?
+                currentThreadAllocatedBytes() - startAllocatedBytes + workerAllocatedBytes.sum() : NOT_SUPPORTED);
+
+            synchronized (phases) {
+                phases.add(metrics);
+            }
+            if (activePhase == this) {
+                activePhase = null;
+            }
+            logger.debug("Phase finished: {}", metrics);
+        }
+    }
+
+    /**
+     * Usage of one unit of work on a worker thread, added to the active phase when finished
+     */
+    public class WorkerUsage {
+        private final Phase phase;
+        private final long startCpuNanos;
+        private final long startAllocatedBytes;
+
+        private WorkerUsage(Phase phase) {
+            this.phase = phase;
+            this.startCpuNanos = currentThreadCpuTime();
+            this.startAllocatedBytes = currentThreadAllocatedBytes();
+        }
+
+        public void finish() {
+            if (phase != null) {
+                phase.workerCpuNanos.add(currentThreadCpuTime() - startCpuNanos);
+                phase.workerAllocatedBytes.add(currentThreadAllocatedBytes() - startAllocatedBytes);
+            }
+        }
+    }
+
+    /**
+     * Start measuring a phase on the calling thread
+     */
+    public Phase startPhase(String name) {
+        Phase phase = new Phase(name);
+        activePhase = phase;
+        return phase;
+    }
+
+    /**
+     * Start measuring work done on a worker thread for the active phase
+     */
+    public WorkerUsage startWorker() {
+        return new WorkerUsage(activePhase);
+    }
+
+    public List<PhaseMetrics> getPhases() {
+        synchronized (phases) {
+            return new ArrayList<>(phases);
+        }
+    }
+
+    public boolean isCpuTimeSupported() { return cpuTimeSupported; }
+
+    public boolean isAllocationSupported() { return allocationSupported; }
+
+    /**
+     * Human readable table of all finished phases
+     */
+    public String formatSummary() {
+        List<PhaseMetrics> finished = getPhases();
+        StringBuilder summary = new StringBuilder();
+        summary.append("PERFORMANCE PROFILE:\n");
+        summary.append("----------------------------------------\n");
+        summary.append(String.format("%-18s %24s %12s %12s %14s%n", "Phase", "Items", "Wall ms", "CPU ms", "Allocated MB"));
+
+        long wallNanos = 0;
+        long cpuNanos = 0;
+        long allocatedBytes = 0;
+        for (PhaseMetrics phase : finished) {
+            String items = phase.getItemUnit() != null ? phase.getItems() + " " + phase.getItemUnit() : "";
+            summary.append(String.format("%-18s %24s %12s %12s %14s%n", phase.getName(), items,
+                formatMillis(phase.getWallTimeNanos()), formatMillis(phase.getCpuTimeNanos()),
+                formatMegabytes(phase.getAllocatedBytes())));
+            wallNanos += phase.getWallTimeNanos();
+            cpuNanos += phase.getCpuTimeNanos();
+            allocatedBytes += phase.getAllocatedBytes();
+        }
+
+        summary.append(String.format("%-18s %24s %12s %12s %14s%n", "total", "",
+            formatMillis(wallNanos), formatMillis(cpuTimeSupported ? cpuNanos : NOT_SUPPORTED),
+            formatMegabytes(allocationSupported ? allocatedBytes : NOT_SUPPORTED)));
+        return summary.toString();
+    }
+
+    /**
+     * Write all finished phases as JSON
+     */
+    public void writeJson(File file, String timestamp) throws IOException {
+        List<PhaseMetrics> finished = getPhases();
+        long wallNanos = finished.stream().mapToLong(PhaseMetrics::getWallTimeNanos).sum();
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("timestamp", timestamp);
+        metrics.put("cpuTimeSupported", cpuTimeSupported);
+        metrics.put("allocationSupported", allocationSupported);
+        metrics.put("totalWallTimeNanos", wallNanos);
+        metrics.put("phases", finished);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+        FileUtils.forceMkdirParent(file);
+        objectMapper.writeValue(file, metrics);
+        logger.info("Metrics written: {}", file.getPath());
+    }
+
+    private long currentThreadCpuTime() {
+        return cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : 0;
+    }
+
+    private long currentThreadAllocatedBytes() {
+        return allocationSupported ? allocationMXBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    private static String formatMillis(long nanos) {
+        return nanos < 0 ? "n/a" : String.format("%.1f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static String formatMegabytes(long bytes) {
+        return bytes < 0 ? "n/a" : String.format("%.1f", bytes / (1024.0 * 1024.0));
+    }
+}
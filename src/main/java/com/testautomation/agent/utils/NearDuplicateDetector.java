@@ -0,0 +1,305 @@
+package com.testautomation.agent.utils;
+
+import com.testautomation.agent.model.FeatureStep;
+import com.testautomation.agent.model.NearDuplicateCluster;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Finds near-duplicate steps with MinHash and locality-sensitive hashing.
+ *
+ * Each step is reduced to the set of its token shingles (word n-grams of the normalized
+ * text, so parameter values do not matter) and a MinHash signature of that set. The
+ * signature is split into bands; only steps with the same keyword and step type that
+ * share a whole band are compared, which keeps the work close to linear in the number of
+ * steps. Candidates are confirmed with the exact Jaccard similarity of their shingles and
+ * joined into clusters.
+ */
+public class NearDuplicateDetector {
+    private static final Logger logger = LoggerFactory.getLogger(NearDuplicateDetector.class);
+
+    public static final double DEFAULT_THRESHOLD = 0.6;
+    public static final int DEFAULT_SHINGLE_SIZE = 2;
+
+    // 32 bands of 4 rows make pairs above ~0.42 similarity likely candidates
+    private static final int BANDS = 32;
+    private static final int ROWS = 4;
+    private static final long HASH_SEED = 0x5DEECE66DL;
+
+    private final double threshold;
+    private final int shingleSize;
+    private final int[] hashSeeds;
+
+    public NearDuplicateDetector() {
+        this(DEFAULT_THRESHOLD, DEFAULT_SHINGLE_SIZE);
+    }
+
+    public NearDuplicateDetector(double threshold, int shingleSize) {
+        if (threshold <= 0 || threshold > 1) {
+            throw new IllegalArgumentException("Similarity threshold must be in (0, 1]: " + threshold);
+        }
+        if (shingleSize < 1) {
+            throw new IllegalArgumentException("Shingle size must be positive: " + shingleSize);
+        }
+        this.threshold = threshold;
+        this.shingleSize = shingleSize;
+
+        SplittableRandom random = new SplittableRandom(HASH_SEED);
+        this.hashSeeds = new int[BANDS * ROWS];
+        for (int i = 0; i < hashSeeds.length; i++) {
+            hashSeeds[i] = random.nextInt();
+        }
+    }
+
+    public double getThreshold() { return threshold; }
+
+    /**
+     * Detect clusters of near-duplicate steps among the unique steps of an index,
+     * largest clusters first
+     */
+    public List<NearDuplicateCluster> detect(StepOccurrenceIndex index) {
+        // Sort for clusters that do not depend on hash map order
+        List<FeatureStep> steps = new ArrayList<>(index.getUniqueSteps());
+        steps.sort(Comparator.comparing(FeatureStep::getKeyword, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparing(FeatureStep::getNormalizedText, Comparator.nullsFirst(Comparator.<String>naturalOrder())));
+
+        int count = steps.size();
+        int[][] shingles = new int[count][];
+        int[][] signatures = new int[count][];
+        int[] groups = new int[count];
+        for (int i = 0; i < count; i++) {
+            FeatureStep step = steps.get(i);
+            shingles[i] = shingles(step.getNormalizedText());
+            signatures[i] = shingles[i].length > 0 ? signature(shingles[i]) : null;
+            groups[i] = Objects.hash(step.getKeyword(), step.getStepType());
+        }
+
+        int[] parents = new int[count];
+        for (int i = 0; i < count; i++) {
+            parents[i] = i;
+        }
+
+        // Bucket each band by sorting (band hash, step index) pairs packed into longs, which
+        // avoids boxing hundreds of thousands of keys per band. Steps whose band hashes
+        // collide only cost an extra comparison.
+        long comparisons = 0;
+        long[] bucketEntries = new long[count];
+        for (int band = 0; band < BANDS; band++) {
+            int entries = 0;
+            for (int i = 0; i < count; i++) {
+                if (signatures[i] != null) {
+                    bucketEntries[entries++] = (long) bandHash(signatures[i], band, groups[i]) << 32 | i;
+                }
+            }
+            Arrays.sort(bucketEntries, 0, entries);
+
+            int bucketStart = 0;
+            for (int i = 1; i <= entries; i++) {
+                if (i == entries || bucketEntries[i] >>> 32 != bucketEntries[bucketStart] >>> 32) {
+                    if (i - bucketStart > 1) {
+                        comparisons += clusterBucket(bucketEntries, bucketStart, i, steps, shingles, parents);
+                    }
+                    bucketStart = i;
+                }
+            }
+        }
+
+        List<NearDuplicateCluster> clusters = buildClusters(steps, shingles, parents, index);
+        logger.info("Found {} near-duplicate clusters among {} unique steps ({} comparisons)",
+            clusters.size(), count, comparisons);
+        return clusters;
+    }
+
+    /**
+     * Join the steps of one bucket that are similar enough. Each step is compared with one
+     * step of every cluster already seen in the bucket instead of with every other step,
+     * so buckets full of near-identical steps stay cheap.
+     */
+    private long clusterBucket(long[] bucketEntries, int from, int to, List<FeatureStep> steps,
+                               int[][] shingles, int[] parents) {
+        long comparisons = 0;
+        List<Integer> leaders = new ArrayList<>();
+        for (int entry = from; entry < to; entry++) {
+            int member = (int) bucketEntries[entry];
+            boolean joined = false;
+            for (int leader : leaders) {
+                if (find(parents, leader) == find(parents, member)) {
+                    joined = true;
+                    continue;
+                }
+                if (!sameGroup(steps.get(leader), steps.get(member))) {
+                    continue;
+                }
+                comparisons++;
+                if (jaccard(shingles[leader], shingles[member]) >= threshold) {
+                    union(parents, leader, member);
+                    joined = true;
+                }
+            }
+            if (!joined) {
+                leaders.add(member);
+            }
+        }
+        return comparisons;
+    }
+
+    private List<NearDuplicateCluster> buildClusters(List<FeatureStep> steps, int[][] shingles, int[] parents,
+                                                     StepOccurrenceIndex index) {
+        Map<Integer, List<Integer>> membersByRoot = new LinkedHashMap<>();
+        for (int i = 0; i < steps.size(); i++) {
+            membersByRoot.computeIfAbsent(find(parents, i), k -> new ArrayList<>()).add(i);
+        }
+
+        List<NearDuplicateCluster> clusters = new ArrayList<>();
+        for (List<Integer> members : membersByRoot.values()) {
+            if (members.size() < 2) {
+                continue;
+            }
+
+            // The most used step represents the cluster
+            int representative = members.get(0);
+            for (int member : members) {
+                if (index.getOccurrences(steps.get(member)).size() >
+                    index.getOccurrences(steps.get(representative)).size()) {
+                    representative = member;
+                }
+            }
+
+            FeatureStep representativeStep = steps.get(representative);
+            NearDuplicateCluster cluster = new NearDuplicateCluster(
+                representativeStep.getStepType(), representativeStep.getKeyword(), representativeStep);
+            cluster.getMembers().add(new NearDuplicateCluster.Member(representativeStep, 1.0));
+            for (int member : members) {
+                if (member != representative) {
+                    cluster.getMembers().add(new NearDuplicateCluster.Member(
+                        steps.get(member), jaccard(shingles[representative], shingles[member])));
+                }
+            }
+            clusters.add(cluster);
+        }
+
+        clusters.sort(Comparator.comparingInt(NearDuplicateCluster::size).reversed());
+        return clusters;
+    }
+
+    /**
+     * Sorted, distinct hashes of all word n-grams of the text up to the shingle size
+     */
+    private int[] shingles(String normalizedText) {
+        if (normalizedText == null) {
+            return new int[0];
+        }
+
+        String[] tokens = normalizedText.toLowerCase(Locale.ROOT).trim().split("\\s+");
+        if (tokens.length == 1 && tokens[0].isEmpty()) {
+            return new int[0];
+        }
+
+        int[] tokenHashes = new int[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            tokenHashes[i] = tokens[i].hashCode();
+        }
+
+        int[] hashes = new int[tokens.length * shingleSize];
+        int size = 0;
+        for (int start = 0; start < tokens.length; start++) {
+            int hash = 0;
+            for (int n = 1; n <= shingleSize && start + n <= tokens.length; n++) {
+                hash = mix(hash * 31 + tokenHashes[start + n - 1] + n);
+                hashes[size++] = hash;
+            }
+        }
+
+        int[] sorted = Arrays.copyOf(hashes, size);
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, distinct);
+    }
+
+    /**
+     * MinHash signature: the minimum of each seeded hash function over the shingles
+     */
+    private int[] signature(int[] shingles) {
+        int[] signature = new int[hashSeeds.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int shingle : shingles) {
+            for (int i = 0; i < hashSeeds.length; i++) {
+                int hash = mix(shingle ^ hashSeeds[i]);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static int bandHash(int[] signature, int band, int group) {
+        int hash = group;
+        for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+            hash = mix(hash * 31 + signature[row]);
+        }
+        return hash;
+    }
+
+    /**
+     * Exact Jaccard similarity of two sorted, distinct hash sets
+     */
+    private static double jaccard(int[] a, int[] b) {
+        int i = 0;
+        int j = 0;
+        int intersection = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                intersection++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        int union = a.length + b.length - intersection;
+        return union == 0 ? 0 : (double) intersection / union;
+    }
+
+    private static boolean sameGroup(FeatureStep a, FeatureStep b) {
+        return Objects.equals(a.getKeyword(), b.getKeyword()) && Objects.equals(a.getStepType(), b.getStepType());
+    }
+
+    /**
+     * Murmur3 finalizer, a cheap bijective mix of all bits
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private static int find(int[] parents, int i) {
+        while (parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parents, int a, int b) {
+        int rootA = find(parents, a);
+        int rootB = find(parents, b);
+        if (rootA != rootB) {
+            // Keep the smaller index as root so clusters come out in sorted order
+            parents[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+}
@@ -1,32 +1,264 @@
 package com.testautomation.agent.utils;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.testautomation.agent.model.FeatureStep;
+import com.testautomation.agent.config.AgentConfig;
+import com.testautomation.agent.model.NearDuplicateCluster;
+import com.testautomation.agent.model.ReportModel;
 import com.testautomation.agent.model.StepDefinition;
+import org.apache.commons.io.output.CountingOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 /**
  * Generates various reports for step definition generation
  */
 public class ReportGenerator {
     private static final Logger logger = LoggerFactory.getLogger(ReportGenerator.class);
+    private static final String CONFIG_RESOURCE = "agent-config.yaml";
+    private static final String CONFIG_KEY = "reportFormats";
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final String PAGED_HTML_TEMPLATE = "reports/paged-report.html";
+    private static final Set<String> PAGED_HTML_VARIABLES = new HashSet<>(Arrays.asList("styles", "dataDirectory"));
+    
+    /**
+     * Rows per page of the paged HTML report
+     */
+    public static final int DEFAULT_HTML_PAGE_SIZE = 500;
+    
+    /**
+     * Suffix of JSON and XML report paths that are written gzip-compressed
+     */
+    public static final String COMPRESSED_SUFFIX = ".gz";
+    
+    /**
+     * Report formats that can be written to a file
+     */
+    public static final List<String> REPORT_FORMATS = Collections.unmodifiableList(Arrays.asList(
+        "HTML", "JSON", "XML"));
+    
+    /**
+     * Top-level sections of the JSON report
+     */
+    public static final List<String> JSON_SECTIONS = Collections.unmodifiableList(Arrays.asList(
+        "timestamp", "summary", "featureFiles", "generatedDefinitions", "duplicates"));
+    
+    /**
+     * Fields of each step in the featureFiles section of the JSON report
+     */
+    public static final List<String> JSON_STEP_FIELDS = Collections.unmodifiableList(Arrays.asList(
+        "keyword", "text", "parameters", "featureFile", "lineNumber", "stepType", "stepTypeKeyword"));
+    
+    /**
+     * Fields of each definition in the generatedDefinitions section of the JSON report
+     */
+    public static final List<String> JSON_DEFINITION_FIELDS = Collections.unmodifiableList(Arrays.asList(
+        "methodName", "annotation", "methodSignature", "methodBody", "className", "packageName",
+        "parameters", "stepType", "originalStepText", "filePath"));
     
     private final ObjectMapper objectMapper;
+    private boolean compactJson;
+    private Set<String> jsonFields; // null writes every section and field
+    private int htmlPageSize; // 0 writes the HTML report as a single document
+    private MetricsRecorder metricsRecorder;
+    private final Map<String, Long> uncompressedSizes = new ConcurrentHashMap<>();
     
     public ReportGenerator() {
         this.objectMapper = new ObjectMapper();
         this.objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
     }
     
+    /**
+     * Write JSON reports without indentation
+     */
+    public void setCompactJson(boolean compactJson) {
+        this.compactJson = compactJson;
+    }
+    
+    /**
+     * Sections and fields to include in the JSON report, or null for all of them. A section
+     * is written when it is listed. The fields of steps and definitions are restricted to the
+     * listed ones only when at least one of them is listed; otherwise they are all written.
+     */
+    public void setJsonFields(Collection<String> jsonFields) {
+        this.jsonFields = jsonFields != null ? new HashSet<>(jsonFields) : null;
+    }
+    
+    /**
+     * Write HTML reports as a paged index page with this many rows per page, or as a single
+     * document when 0
+     */
+    public void setHtmlPageSize(int htmlPageSize) {
+        this.htmlPageSize = htmlPageSize;
+    }
+    
+    /**
+     * Record the work of report rendering threads in the active phase of a recorder
+     */
+    public void setMetricsRecorder(MetricsRecorder metricsRecorder) {
+        this.metricsRecorder = metricsRecorder;
+    }
+    
+    /**
+     * Bytes of report content written to a report file before compression, or the size of
+     * the file when it is not compressed
+     */
+    public long getUncompressedSize(String outputPath) {
+        Long size = uncompressedSizes.get(outputPath);
+        return size != null ? size : new File(outputPath).length();
+    }
+    
+    /**
+     * Build the report model of a run from a step occurrence index
+     */
+    public ReportModel buildReportModel(StepOccurrenceIndex index,
+                                        Map<String, List<StepDefinition>> generatedDefinitions) {
+        return buildReportModel(index.getAllSteps(), index.getTotalStepCount(), generatedDefinitions,
+            index.getDuplicates());
+    }
+    
+    /**
+     * Build the report model of a run
+     */
+    public ReportModel buildReportModel(Map<String, List<FeatureStep>> allSteps,
+                                        Map<String, List<StepDefinition>> generatedDefinitions,
+                                        Map<FeatureStep, List<String>> duplicates) {
+        return buildReportModel(allSteps, countSteps(allSteps), generatedDefinitions, duplicates);
+    }
+    
+    private ReportModel buildReportModel(Map<String, List<FeatureStep>> allSteps, int totalSteps,
+                                         Map<String, List<StepDefinition>> generatedDefinitions,
+                                         Map<FeatureStep, List<String>> duplicates) {
+        int totalDefinitions = generatedDefinitions.values().stream().mapToInt(List::size).sum();
+        
+        Map<String, Map<String, Long>> typeCountsByFile = new LinkedHashMap<>();
+        for (Map.Entry<String, List<FeatureStep>> entry : allSteps.entrySet()) {
+            typeCountsByFile.put(entry.getKey(), Collections.unmodifiableMap(entry.getValue().stream()
+                .collect(Collectors.groupingBy(FeatureStep::getStepType, Collectors.counting()))));
+        }
+        
+        return new ReportModel(getCurrentTimestamp(),
+            generateSummaryData(allSteps.size(), totalSteps, totalDefinitions, duplicates.size()),
+            allSteps, totalSteps, typeCountsByFile, generatedDefinitions, totalDefinitions, duplicates);
+    }
+    
+    /**
+     * Report formats listed under reportFormats in the bundled agent-config.yaml, or all
+     * formats when the file does not list any
+     */
+    public static List<String> loadConfiguredFormats() {
+        try {
+            Map<String, Object> config = new AgentConfig().loadFromClasspath(CONFIG_RESOURCE);
+            Object configured = config.get(CONFIG_KEY);
+            if (configured instanceof Collection && !((Collection<?>) configured).isEmpty()) {
+                List<String> formats = new ArrayList<>();
+                for (Object value : (Collection<?>) configured) {
+                    String format = String.valueOf(value).trim().toUpperCase();
+                    if (!REPORT_FORMATS.contains(format)) {
+                        logger.warn("Ignoring unknown report format {} in {}", value, CONFIG_RESOURCE);
+                    } else if (!formats.contains(format)) {
+                        formats.add(format);
+                    }
+                }
+                return formats;
+            }
+        } catch (Exception e) {
+            logger.warn("Could not load report formats from {}, using defaults", CONFIG_RESOURCE, e);
+        }
+        return REPORT_FORMATS;
+    }
+    
+    /**
+     * Render one report model in several formats, each on its own thread. The output paths
+     * are keyed by format, one of REPORT_FORMATS.
+     */
+    public void generateReports(ReportModel model, Map<String, String> outputPathsByFormat) throws IOException {
+        List<Callable<Void>> tasks = new ArrayList<>(outputPathsByFormat.size());
+        for (Map.Entry<String, String> entry : outputPathsByFormat.entrySet()) {
+            String format = entry.getKey();
+            String outputPath = entry.getValue();
+            tasks.add(() -> {
+                MetricsRecorder.WorkerUsage usage = metricsRecorder != null ? metricsRecorder.startWorker() : null;
+                try {
+                    generateReport(model, format, outputPath);
+                } finally {
+                    if (usage != null) {
+                        usage.finish();
+                    }
+                }
+                return null;
+            });
+        }
+        if (tasks.isEmpty()) {
+            return;
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating reports", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error generating reports", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private void generateReport(ReportModel model, String format, String outputPath) throws IOException {
+        switch (format) {
+            case "HTML":
+                if (htmlPageSize > 0) {
+                    generatePagedHtmlReport(model, outputPath, htmlPageSize);
+                } else {
+                    generateHtmlReport(model, outputPath);
+                }
+                break;
+            case "JSON":
+                generateJsonReport(model, outputPath);
+                break;
+            case "XML":
+                generateXmlReport(model, outputPath);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown report format: " + format);
+        }
+    }
+    
     /**
      * Generate HTML report
      */
@@ -34,6 +266,25 @@ public class ReportGenerator {
                                  Map<String, List<StepDefinition>> generatedDefinitions,
                                  Map<FeatureStep, List<String>> duplicates,
                                  String outputPath) throws IOException {
+        generateHtmlReport(buildReportModel(allSteps, generatedDefinitions, duplicates), outputPath);
+    }
+    
+    /**
+     * Generate HTML report from a step occurrence index
+     */
+    public void generateHtmlReport(StepOccurrenceIndex index,
+                                 Map<String, List<StepDefinition>> generatedDefinitions,
+                                 String outputPath) throws IOException {
+        generateHtmlReport(buildReportModel(index, generatedDefinitions), outputPath);
+    }
+    
+    /**
+     * Generate HTML report from a report model
+     */
+    public void generateHtmlReport(ReportModel model, String outputPath) throws IOException {
+        
+        GeneratorEvents.ReportGenerated event = new GeneratorEvents.ReportGenerated();
+        event.begin();
         
         StringBuilder html = new StringBuilder();
         
@@ -47,30 +298,30 @@ public class ReportGenerator {
         
         html.append("<div class=\"container\">\n");
         html.append("<h1>Cucumber Step Definition Generation Report</h1>\n");
-        html.append("<p class=\"timestamp\">Generated on: " + getCurrentTimestamp() + "</p>\n");
+        html.append("<p class=\"timestamp\">Generated on: " + model.getTimestamp() + "</p>\n");
         
         // Summary section
         html.append("<div class=\"section\">\n");
         html.append("<h2>Summary</h2>\n");
-        html.append(generateSummaryHtml(allSteps, generatedDefinitions, duplicates));
+        html.append(generateSummaryHtml(model.getSummary()));
         html.append("</div>\n");
         
         // Feature files section
         html.append("<div class=\"section\">\n");
         html.append("<h2>Feature Files Analysis</h2>\n");
-        html.append(generateFeatureFilesHtml(allSteps));
+        html.append(generateFeatureFilesHtml(model));
         html.append("</div>\n");
         
         // Generated definitions section
         html.append("<div class=\"section\">\n");
         html.append("<h2>Generated Step Definitions</h2>\n");
-        html.append(generateDefinitionsHtml(generatedDefinitions));
+        html.append(generateDefinitionsHtml(model.getGeneratedDefinitions()));
         html.append("</div>\n");
         
         // Duplicates section
         html.append("<div class=\"section\">\n");
         html.append("<h2>Duplicate Steps</h2>\n");
-        html.append(generateDuplicatesHtml(duplicates));
+        html.append(generateDuplicatesHtml(model.getDuplicates()));
         html.append("</div>\n");
         
         html.append("</div>\n");
@@ -79,9 +330,107 @@ public class ReportGenerator {
         // Write HTML file
         File file = new File(outputPath);
         org.apache.commons.io.FileUtils.writeStringToFile(file, html.toString(), StandardCharsets.UTF_8);
+        commitReportEvent(event, "HTML", outputPath, model.getTotalSteps());
         logger.info("HTML report generated: {}", outputPath);
     }
     
+    /**
+     * Generate a paged HTML report for very large runs: a small index page plus a data
+     * directory next to it holding the figures of the run and the rows of the feature file
+     * and duplicate tables in chunks of one page each. The page loads a chunk only when it
+     * is shown or searched, so neither writing nor viewing the report holds the whole
+     * corpus at once. Chunks are JSON wrapped in a script call, which lets the page load
+     * them from the file system where browsers block reading JSON files directly.
+     */
+    public void generatePagedHtmlReport(ReportModel model, String outputPath, int pageSize) throws IOException {
+        
+        GeneratorEvents.ReportGenerated event = new GeneratorEvents.ReportGenerated();
+        event.begin();
+        
+        File indexFile = new File(outputPath);
+        String dataDirectoryName = indexFile.getName().replaceFirst("\\.html?$", "") + "_data";
+        File dataDirectory = new File(indexFile.getAbsoluteFile().getParentFile(), dataDirectoryName);
+        if (!dataDirectory.isDirectory() && !dataDirectory.mkdirs()) {
+            throw new IOException("Could not create report data directory: " + dataDirectory);
+        }
+        
+        // Feature files
+        ReportChunkWriter featureFileChunks = new ReportChunkWriter(dataDirectory, "featureFiles", pageSize);
+        try (ReportChunkWriter chunks = featureFileChunks) {
+            for (Map.Entry<String, List<FeatureStep>> entry : model.getAllSteps().entrySet()) {
+                JsonGenerator json = chunks.startRow();
+                json.writeStartArray();
+                json.writeString(entry.getKey());
+                json.writeNumber(entry.getValue().size());
+                json.writeString(String.valueOf(model.getTypeCountsByFile().get(entry.getKey())));
+                json.writeEndArray();
+            }
+        }
+        
+        // Duplicates
+        ReportChunkWriter duplicateChunks = new ReportChunkWriter(dataDirectory, "duplicates", pageSize);
+        try (ReportChunkWriter chunks = duplicateChunks) {
+            for (Map.Entry<FeatureStep, List<String>> entry : model.getDuplicates().entrySet()) {
+                FeatureStep step = entry.getKey();
+                JsonGenerator json = chunks.startRow();
+                json.writeStartArray();
+                json.writeString(step.getKeyword() + " " + step.getText());
+                json.writeString(step.getStepType());
+                json.writeString(String.join(", ", entry.getValue()));
+                json.writeEndArray();
+            }
+        }
+        
+        // Summary, definitions and the size of each chunked section
+        File reportScript = new File(dataDirectory, "report.js");
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(reportScript, JsonEncoding.UTF8)) {
+            json.writeRaw("loadReport(");
+            json.writeStartObject();
+            json.writeStringField("timestamp", model.getTimestamp());
+            
+            json.writeArrayFieldStart("summary");
+            for (Map.Entry<String, Object> entry : model.getSummary().entrySet()) {
+                json.writeStartArray();
+                json.writeString(entry.getKey());
+                json.writeNumber((Integer) entry.getValue());
+                json.writeEndArray();
+            }
+            json.writeEndArray();
+            
+            json.writeObjectFieldStart("definitions");
+            json.writeFieldName("columns");
+            writeJsonStrings(json, Arrays.asList("Step Type", "Methods Generated", "Classes"));
+            json.writeArrayFieldStart("rows");
+            for (Map.Entry<String, List<StepDefinition>> entry : model.getGeneratedDefinitions().entrySet()) {
+                json.writeStartArray();
+                json.writeString(entry.getKey());
+                json.writeNumber(entry.getValue().size());
+                json.writeNumber(entry.getValue().stream().map(StepDefinition::getClassName).distinct().count());
+                json.writeEndArray();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+            
+            json.writeObjectFieldStart("sections");
+            writeReportSection(json, featureFileChunks, Arrays.asList("Feature File", "Steps", "Types"), null);
+            writeReportSection(json, duplicateChunks, Arrays.asList("Step", "Type", "Found In Files"),
+                "No duplicate steps found.");
+            json.writeEndObject();
+            
+            json.writeEndObject();
+            json.writeRaw(");\n");
+        }
+        
+        Map<String, String> variables = new HashMap<>();
+        variables.put("styles", getHtmlStyles());
+        variables.put("dataDirectory", dataDirectoryName);
+        org.apache.commons.io.FileUtils.writeStringToFile(indexFile, loadPagedHtmlTemplate().render(variables),
+            StandardCharsets.UTF_8);
+        commitReportEvent(event, "HTML", outputPath, model.getTotalSteps());
+        logger.info("Paged HTML report generated: {} ({} feature file and {} duplicate pages)", outputPath,
+            featureFileChunks.getChunkCount(), duplicateChunks.getChunkCount());
+    }
+    
     /**
      * Generate JSON report
      */
@@ -89,18 +438,133 @@ public class ReportGenerator {
                                  Map<String, List<StepDefinition>> generatedDefinitions,
                                  Map<FeatureStep, List<String>> duplicates,
                                  String outputPath) throws IOException {
+        generateJsonReport(buildReportModel(allSteps, generatedDefinitions, duplicates), outputPath);
+    }
+    
+    /**
+     * Generate JSON report from a step occurrence index
+     */
+    public void generateJsonReport(StepOccurrenceIndex index,
+                                 Map<String, List<StepDefinition>> generatedDefinitions,
+                                 String outputPath) throws IOException {
+        generateJsonReport(buildReportModel(index, generatedDefinitions), outputPath);
+    }
+    
+    /**
+     * Generate JSON report from a report model
+     */
+    public void generateJsonReport(ReportModel model, String outputPath) throws IOException {
         
-        Map<String, Object> report = new HashMap<>();
-        report.put("timestamp", getCurrentTimestamp());
-        report.put("summary", generateSummaryData(allSteps, generatedDefinitions, duplicates));
-        report.put("featureFiles", allSteps);
-        report.put("generatedDefinitions", generatedDefinitions);
-        report.put("duplicates", duplicates);
+        GeneratorEvents.ReportGenerated event = new GeneratorEvents.ReportGenerated();
+        event.begin();
         
-        objectMapper.writeValue(new File(outputPath), report);
+        Set<String> stepFields = selectFields(JSON_STEP_FIELDS);
+        Set<String> definitionFields = selectFields(JSON_DEFINITION_FIELDS);
+        
+        // Each section is written straight from the live data, one step or definition at a
+        // time, in the order the report has always had
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(openReportStream(outputPath), JsonEncoding.UTF8)) {
+            if (!compactJson) {
+                json.useDefaultPrettyPrinter();
+            }
+            json.writeStartObject();
+            
+            if (includesJsonSection("summary")) {
+                json.writeFieldName("summary");
+                json.writeStartObject();
+                for (Map.Entry<String, Object> entry : model.getSummary().entrySet()) {
+                    json.writeNumberField(entry.getKey(), (Integer) entry.getValue());
+                }
+                json.writeEndObject();
+            }
+            
+            if (includesJsonSection("duplicates")) {
+                json.writeFieldName("duplicates");
+                json.writeStartObject();
+                for (Map.Entry<FeatureStep, List<String>> entry : model.getDuplicates().entrySet()) {
+                    json.writeFieldName(String.valueOf(entry.getKey()));
+                    writeJsonStrings(json, entry.getValue());
+                }
+                json.writeEndObject();
+            }
+            
+            if (includesJsonSection("featureFiles")) {
+                json.writeFieldName("featureFiles");
+                json.writeStartObject();
+                for (Map.Entry<String, List<FeatureStep>> entry : model.getAllSteps().entrySet()) {
+                    json.writeFieldName(entry.getKey());
+                    json.writeStartArray();
+                    for (FeatureStep step : entry.getValue()) {
+                        writeJsonStep(json, step, stepFields);
+                    }
+                    json.writeEndArray();
+                }
+                json.writeEndObject();
+            }
+            
+            if (includesJsonSection("timestamp")) {
+                json.writeStringField("timestamp", model.getTimestamp());
+            }
+            
+            if (includesJsonSection("generatedDefinitions")) {
+                json.writeFieldName("generatedDefinitions");
+                json.writeStartObject();
+                for (Map.Entry<String, List<StepDefinition>> entry : model.getGeneratedDefinitions().entrySet()) {
+                    json.writeFieldName(entry.getKey());
+                    json.writeStartArray();
+                    for (StepDefinition definition : entry.getValue()) {
+                        writeJsonDefinition(json, definition, definitionFields);
+                    }
+                    json.writeEndArray();
+                }
+                json.writeEndObject();
+            }
+            
+            json.writeEndObject();
+        }
+        commitReportEvent(event, "JSON", outputPath, model.getTotalSteps());
         logger.info("JSON report generated: {}", outputPath);
     }
     
+    /**
+     * Generate JSON report of near-duplicate step clusters
+     */
+    public void generateNearDuplicateReport(List<NearDuplicateCluster> clusters, String outputPath) throws IOException {
+        List<Map<String, Object>> clusterReports = new ArrayList<>();
+        for (NearDuplicateCluster cluster : clusters) {
+            List<Map<String, Object>> members = new ArrayList<>();
+            for (NearDuplicateCluster.Member member : cluster.getMembers()) {
+                Map<String, Object> memberReport = new LinkedHashMap<>();
+                memberReport.put("text", member.getStep().getText());
+                memberReport.put("featureFile", member.getStep().getFeatureFile());
+                memberReport.put("lineNumber", member.getStep().getLineNumber());
+                memberReport.put("similarity", member.getSimilarity());
+                members.add(memberReport);
+            }
+            
+            Map<String, Object> clusterReport = new LinkedHashMap<>();
+            clusterReport.put("stepType", cluster.getStepType());
+            clusterReport.put("keyword", cluster.getKeyword());
+            clusterReport.put("representative", cluster.getRepresentative().getText());
+            clusterReport.put("minSimilarity", cluster.getMinSimilarity());
+            clusterReport.put("mergedAnnotation", cluster.getMergedAnnotation());
+            clusterReport.put("members", members);
+            clusterReports.add(clusterReport);
+        }
+        
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", getCurrentTimestamp());
+        report.put("clusterCount", clusters.size());
+        report.put("clusters", clusterReports);
+        
+        if (compactJson) {
+            objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT).writeValue(openReportStream(outputPath), report);
+        } else {
+            objectMapper.writeValue(openReportStream(outputPath), report);
+        }
+        logger.info("Near-duplicate report generated: {}", outputPath);
+    }
+    
     /**
      * Generate XML report
      */
@@ -108,43 +572,114 @@ public class ReportGenerator {
                                Map<String, List<StepDefinition>> generatedDefinitions,
                                Map<FeatureStep, List<String>> duplicates,
                                String outputPath) throws IOException {
+        generateXmlReport(buildReportModel(allSteps, generatedDefinitions, duplicates), outputPath);
+    }
+    
+    /**
+     * Generate XML report from a step occurrence index
+     */
+    public void generateXmlReport(StepOccurrenceIndex index,
+                               Map<String, List<StepDefinition>> generatedDefinitions,
+                               String outputPath) throws IOException {
+        generateXmlReport(buildReportModel(index, generatedDefinitions), outputPath);
+    }
+    
+    /**
+     * Generate XML report from a report model
+     */
+    public void generateXmlReport(ReportModel model, String outputPath) throws IOException {
         
-        StringBuilder xml = new StringBuilder();
-        
-        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
-        xml.append("<stepDefinitionReport>\n");
-        xml.append("<timestamp>").append(getCurrentTimestamp()).append("</timestamp>\n");
-        
-        // Summary
-        xml.append("<summary>\n");
-        Map<String, Object> summary = generateSummaryData(allSteps, generatedDefinitions, duplicates);
-        for (Map.Entry<String, Object> entry : summary.entrySet()) {
-            xml.append("<").append(entry.getKey()).append(">")
-               .append(entry.getValue())
-               .append("</").append(entry.getKey()).append(">\n");
-        }
-        xml.append("</summary>\n");
+        GeneratorEvents.ReportGenerated event = new GeneratorEvents.ReportGenerated();
+        event.begin();
         
-        // Feature files
-        xml.append("<featureFiles>\n");
-        for (Map.Entry<String, List<FeatureStep>> entry : allSteps.entrySet()) {
-            xml.append("<featureFile name=\"").append(entry.getKey()).append("\">\n");
-            for (FeatureStep step : entry.getValue()) {
-                xml.append("<step>\n");
-                xml.append("<keyword>").append(step.getKeyword()).append("</keyword>\n");
-                xml.append("<text>").append(step.getText()).append("</text>\n");
-                xml.append("<type>").append(step.getStepType()).append("</type>\n");
-                xml.append("</step>\n");
+        // Elements are written one at a time to a buffered stream, so memory does not grow
+        // with the corpus, and the writer escapes all text and attribute values
+        try (Writer output = new BufferedWriter(new OutputStreamWriter(openReportStream(outputPath),
+                StandardCharsets.UTF_8), WRITE_BUFFER_SIZE)) {
+            XMLStreamWriter xml = XMLOutputFactory.newFactory().createXMLStreamWriter(output);
+            try {
+                xml.writeStartDocument("UTF-8", "1.0");
+                xml.writeCharacters("\n");
+                xml.writeStartElement("stepDefinitionReport");
+                xml.writeCharacters("\n");
+                writeXmlElement(xml, "timestamp", model.getTimestamp());
+                
+                // Summary
+                xml.writeStartElement("summary");
+                xml.writeCharacters("\n");
+                for (Map.Entry<String, Object> entry : model.getSummary().entrySet()) {
+                    xml.writeStartElement("metric");
+                    xml.writeAttribute("name", entry.getKey());
+                    xml.writeCharacters(String.valueOf(entry.getValue()));
+                    xml.writeEndElement();
+                    xml.writeCharacters("\n");
+                }
+                writeXmlEndElement(xml);
+                
+                // Feature files
+                xml.writeStartElement("featureFiles");
+                xml.writeCharacters("\n");
+                for (Map.Entry<String, List<FeatureStep>> entry : model.getAllSteps().entrySet()) {
+                    xml.writeStartElement("featureFile");
+                    xml.writeAttribute("name", xmlText(entry.getKey()));
+                    xml.writeCharacters("\n");
+                    for (FeatureStep step : entry.getValue()) {
+                        xml.writeStartElement("step");
+                        xml.writeCharacters("\n");
+                        writeXmlElement(xml, "keyword", step.getKeyword());
+                        writeXmlElement(xml, "text", step.getText());
+                        writeXmlElement(xml, "type", step.getStepType());
+                        writeXmlElement(xml, "typeKeyword", step.getStepTypeKeyword());
+                        writeXmlEndElement(xml);
+                    }
+                    writeXmlEndElement(xml);
+                }
+                writeXmlEndElement(xml);
+                
+                // Generated definitions
+                xml.writeStartElement("generatedDefinitions");
+                xml.writeCharacters("\n");
+                for (Map.Entry<String, List<StepDefinition>> entry : model.getGeneratedDefinitions().entrySet()) {
+                    xml.writeStartElement("stepType");
+                    xml.writeAttribute("name", xmlText(entry.getKey()));
+                    xml.writeCharacters("\n");
+                    for (StepDefinition definition : entry.getValue()) {
+                        writeXmlDefinition(xml, definition);
+                    }
+                    writeXmlEndElement(xml);
+                }
+                writeXmlEndElement(xml);
+                
+                // Duplicates
+                xml.writeStartElement("duplicates");
+                xml.writeCharacters("\n");
+                for (Map.Entry<FeatureStep, List<String>> entry : model.getDuplicates().entrySet()) {
+                    FeatureStep step = entry.getKey();
+                    xml.writeStartElement("duplicate");
+                    xml.writeCharacters("\n");
+                    writeXmlElement(xml, "keyword", step.getKeyword());
+                    writeXmlElement(xml, "text", step.getText());
+                    writeXmlElement(xml, "type", step.getStepType());
+                    xml.writeStartElement("featureFiles");
+                    xml.writeCharacters("\n");
+                    for (String featureFile : entry.getValue()) {
+                        writeXmlElement(xml, "featureFile", featureFile);
+                    }
+                    writeXmlEndElement(xml);
+                    writeXmlEndElement(xml);
+                }
+                writeXmlEndElement(xml);
+                
+                xml.writeEndElement();
+                xml.writeEndDocument();
+                xml.flush();
+            } finally {
+                xml.close();
             }
-            xml.append("</featureFile>\n");
+        } catch (XMLStreamException e) {
+            throw new IOException("Error writing XML report: " + outputPath, e);
         }
-        xml.append("</featureFiles>\n");
-        
-        xml.append("</stepDefinitionReport>");
-        
-        // Write XML file
-        File file = new File(outputPath);
-        org.apache.commons.io.FileUtils.writeStringToFile(file, xml.toString(), StandardCharsets.UTF_8);
+        commitReportEvent(event, "XML", outputPath, model.getTotalSteps());
         logger.info("XML report generated: {}", outputPath);
     }
     
@@ -154,17 +689,35 @@ public class ReportGenerator {
     public void generateConsoleReport(Map<String, List<FeatureStep>> allSteps,
                                     Map<String, List<StepDefinition>> generatedDefinitions,
                                     Map<FeatureStep, List<String>> duplicates) {
+        generateConsoleReport(buildReportModel(allSteps, generatedDefinitions, duplicates));
+    }
+    
+    /**
+     * Generate console report from a step occurrence index
+     */
+    public void generateConsoleReport(StepOccurrenceIndex index,
+                                    Map<String, List<StepDefinition>> generatedDefinitions) {
+        generateConsoleReport(buildReportModel(index, generatedDefinitions));
+    }
+    
+    /**
+     * Generate console report from a report model
+     */
+    public void generateConsoleReport(ReportModel model) {
+        
+        GeneratorEvents.ReportGenerated event = new GeneratorEvents.ReportGenerated();
+        event.begin();
         
         System.out.println("\n" + "=".repeat(80));
         System.out.println("CUCUMBER STEP DEFINITION GENERATION REPORT");
         System.out.println("=".repeat(80));
-        System.out.println("Generated on: " + getCurrentTimestamp());
+        System.out.println("Generated on: " + model.getTimestamp());
         System.out.println();
         
         // Summary
         System.out.println("SUMMARY:");
         System.out.println("-".repeat(40));
-        Map<String, Object> summary = generateSummaryData(allSteps, generatedDefinitions, duplicates);
+        Map<String, Object> summary = model.getSummary();
         for (Map.Entry<String, Object> entry : summary.entrySet()) {
             System.out.printf("%-20s: %s%n", entry.getKey(), entry.getValue());
         }
@@ -173,7 +726,7 @@ public class ReportGenerator {
         // Feature files
         System.out.println("FEATURE FILES:");
         System.out.println("-".repeat(40));
-        for (Map.Entry<String, List<FeatureStep>> entry : allSteps.entrySet()) {
+        for (Map.Entry<String, List<FeatureStep>> entry : model.getAllSteps().entrySet()) {
             System.out.printf("%-30s: %d steps%n", entry.getKey(), entry.getValue().size());
         }
         System.out.println();
@@ -181,16 +734,16 @@ public class ReportGenerator {
         // Generated definitions
         System.out.println("GENERATED DEFINITIONS:");
         System.out.println("-".repeat(40));
-        for (Map.Entry<String, List<StepDefinition>> entry : generatedDefinitions.entrySet()) {
+        for (Map.Entry<String, List<StepDefinition>> entry : model.getGeneratedDefinitions().entrySet()) {
             System.out.printf("%-20s: %d methods%n", entry.getKey(), entry.getValue().size());
         }
         System.out.println();
         
         // Duplicates
-        if (!duplicates.isEmpty()) {
+        if (!model.getDuplicates().isEmpty()) {
             System.out.println("DUPLICATE STEPS:");
             System.out.println("-".repeat(40));
-            for (Map.Entry<FeatureStep, List<String>> entry : duplicates.entrySet()) {
+            for (Map.Entry<FeatureStep, List<String>> entry : model.getDuplicates().entrySet()) {
                 FeatureStep step = entry.getKey();
                 List<String> files = entry.getValue();
                 System.out.printf("%s %s%n", step.getKeyword(), step.getText());
@@ -200,35 +753,298 @@ public class ReportGenerator {
         }
         
         System.out.println("=".repeat(80));
+        commitReportEvent(event, "CONSOLE", null, model.getTotalSteps());
     }
     
     // Helper methods
+    
+    /**
+     * Open a report file for writing, streamed through gzip when the path ends with .gz. The
+     * caller buffers its writes; the uncompressed size is recorded when the stream is closed.
+     */
+    private OutputStream openReportStream(String outputPath) throws IOException {
+        OutputStream file = new FileOutputStream(outputPath);
+        if (!outputPath.endsWith(COMPRESSED_SUFFIX)) {
+            return file;
+        }
+        return new CountingOutputStream(new GZIPOutputStream(file, WRITE_BUFFER_SIZE)) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                uncompressedSizes.put(outputPath, getByteCount());
+            }
+        };
+    }
+    
+    private CompiledTemplate loadPagedHtmlTemplate() throws IOException {
+        try (InputStream input = ReportGenerator.class.getClassLoader().getResourceAsStream(PAGED_HTML_TEMPLATE)) {
+            if (input == null) {
+                throw new IOException("Report template not found: " + PAGED_HTML_TEMPLATE);
+            }
+            return CompiledTemplate.compile(org.apache.commons.io.IOUtils.toString(input, StandardCharsets.UTF_8),
+                PAGED_HTML_VARIABLES);
+        }
+    }
+    
+    private void writeReportSection(JsonGenerator json, ReportChunkWriter chunks, List<String> columns,
+                                    String emptyText) throws IOException {
+        json.writeObjectFieldStart(chunks.getSection());
+        json.writeFieldName("columns");
+        writeJsonStrings(json, columns);
+        json.writeNumberField("rowCount", chunks.getRowCount());
+        json.writeNumberField("chunkCount", chunks.getChunkCount());
+        json.writeNumberField("pageSize", chunks.getRowsPerChunk());
+        json.writeStringField("emptyText", emptyText);
+        json.writeEndObject();
+    }
+    
+    /**
+     * Writes the rows of one section of the paged HTML report into chunk scripts of a fixed
+     * number of rows, opening the next chunk when the current one is full
+     */
+    private final class ReportChunkWriter implements Closeable {
+        private final File directory;
+        private final String section;
+        private final int rowsPerChunk;
+        private JsonGenerator chunk;
+        private int rowsInChunk;
+        private int rowCount;
+        private int chunkCount;
+        
+        ReportChunkWriter(File directory, String section, int rowsPerChunk) {
+            this.directory = directory;
+            this.section = section;
+            this.rowsPerChunk = rowsPerChunk;
+        }
+        
+        /**
+         * Generator to write the next row to
+         */
+        JsonGenerator startRow() throws IOException {
+            if (chunk == null || rowsInChunk == rowsPerChunk) {
+                finishChunk();
+                File chunkFile = new File(directory, section + "-" + chunkCount + ".js");
+                chunk = objectMapper.getFactory().createGenerator(chunkFile, JsonEncoding.UTF8);
+                chunk.writeRaw("loadChunk(\"" + section + "\", " + chunkCount + ", ");
+                chunk.writeStartArray();
+                chunkCount++;
+                rowsInChunk = 0;
+            }
+            rowsInChunk++;
+            rowCount++;
+            return chunk;
+        }
+        
+        private void finishChunk() throws IOException {
+            if (chunk != null) {
+                chunk.writeEndArray();
+                chunk.writeRaw(");\n");
+                chunk.close();
+                chunk = null;
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            finishChunk();
+        }
+        
+        String getSection() { return section; }
+        
+        int getRowsPerChunk() { return rowsPerChunk; }
+        
+        int getRowCount() { return rowCount; }
+        
+        int getChunkCount() { return chunkCount; }
+    }
+    
+    private boolean includesJsonSection(String section) {
+        return jsonFields == null || jsonFields.contains(section);
+    }
+    
+    /**
+     * The listed fields of an object type, or all of its fields when none is listed
+     */
+    private Set<String> selectFields(List<String> fields) {
+        Set<String> selected = new HashSet<>(fields);
+        if (jsonFields != null && fields.stream().anyMatch(jsonFields::contains)) {
+            selected.retainAll(jsonFields);
+        }
+        return selected;
+    }
+    
+    private void writeJsonStep(JsonGenerator json, FeatureStep step, Set<String> fields) throws IOException {
+        json.writeStartObject();
+        if (fields.contains("keyword")) {
+            json.writeStringField("keyword", step.getKeyword());
+        }
+        if (fields.contains("text")) {
+            json.writeStringField("text", step.getText());
+        }
+        if (fields.contains("parameters")) {
+            json.writeFieldName("parameters");
+            writeJsonStrings(json, step.getParameters());
+        }
+        if (fields.contains("featureFile")) {
+            json.writeStringField("featureFile", step.getFeatureFile());
+        }
+        if (fields.contains("lineNumber")) {
+            json.writeNumberField("lineNumber", step.getLineNumber());
+        }
+        if (fields.contains("stepType")) {
+            json.writeStringField("stepType", step.getStepType());
+        }
+        if (fields.contains("stepTypeKeyword")) {
+            json.writeStringField("stepTypeKeyword", step.getStepTypeKeyword());
+        }
+        json.writeEndObject();
+    }
+    
+    private void writeJsonDefinition(JsonGenerator json, StepDefinition definition, Set<String> fields) throws IOException {
+        json.writeStartObject();
+        if (fields.contains("methodName")) {
+            json.writeStringField("methodName", definition.getMethodName());
+        }
+        if (fields.contains("annotation")) {
+            json.writeStringField("annotation", definition.getAnnotation());
+        }
+        if (fields.contains("methodSignature")) {
+            json.writeStringField("methodSignature", definition.getMethodSignature());
+        }
+        if (fields.contains("methodBody")) {
+            json.writeStringField("methodBody", definition.getMethodBody());
+        }
+        if (fields.contains("className")) {
+            json.writeStringField("className", definition.getClassName());
+        }
+        if (fields.contains("packageName")) {
+            json.writeStringField("packageName", definition.getPackageName());
+        }
+        if (fields.contains("parameters")) {
+            json.writeFieldName("parameters");
+            writeJsonStrings(json, definition.getParameters());
+        }
+        if (fields.contains("stepType")) {
+            json.writeStringField("stepType", definition.getStepType());
+        }
+        if (fields.contains("originalStepText")) {
+            json.writeStringField("originalStepText", definition.getOriginalStepText());
+        }
+        if (fields.contains("filePath")) {
+            json.writeStringField("filePath", definition.getFilePath());
+        }
+        json.writeEndObject();
+    }
+    
+    private void writeXmlDefinition(XMLStreamWriter xml, StepDefinition definition) throws XMLStreamException {
+        xml.writeStartElement("definition");
+        xml.writeCharacters("\n");
+        writeXmlElement(xml, "methodName", definition.getMethodName());
+        writeXmlElement(xml, "annotation", definition.getAnnotation());
+        writeXmlElement(xml, "methodSignature", definition.getMethodSignature());
+        writeXmlElement(xml, "methodBody", definition.getMethodBody());
+        writeXmlElement(xml, "className", definition.getClassName());
+        writeXmlElement(xml, "packageName", definition.getPackageName());
+        if (definition.getParameters() != null) {
+            xml.writeStartElement("parameters");
+            xml.writeCharacters("\n");
+            for (String parameter : definition.getParameters()) {
+                writeXmlElement(xml, "parameter", parameter);
+            }
+            writeXmlEndElement(xml);
+        }
+        writeXmlElement(xml, "stepType", definition.getStepType());
+        writeXmlElement(xml, "originalStepText", definition.getOriginalStepText());
+        writeXmlElement(xml, "filePath", definition.getFilePath());
+        writeXmlEndElement(xml);
+    }
+    
+    /**
+     * Write an element holding text on its own line, or nothing when the text is null
+     */
+    private void writeXmlElement(XMLStreamWriter xml, String name, String text) throws XMLStreamException {
+        if (text == null) {
+            return;
+        }
+        xml.writeStartElement(name);
+        xml.writeCharacters(xmlText(text));
+        xml.writeEndElement();
+        xml.writeCharacters("\n");
+    }
+    
+    private void writeXmlEndElement(XMLStreamWriter xml) throws XMLStreamException {
+        xml.writeEndElement();
+        xml.writeCharacters("\n");
+    }
+    
+    /**
+     * Text with the characters XML 1.0 cannot represent, even escaped, replaced by U+FFFD
+     */
+    private static String xmlText(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!isXmlChar(text.charAt(i))) {
+                StringBuilder valid = new StringBuilder(text.length());
+                valid.append(text, 0, i);
+                for (int j = i; j < text.length(); j++) {
+                    char c = text.charAt(j);
+                    valid.append(isXmlChar(c) ? c : '\uFFFD');
+                }
+                return valid.toString();
+            }
+        }
+        return text;
+    }
+    
+    private static boolean isXmlChar(char c) {
+        return c >= 0x20 ? c != 0xFFFE && c != 0xFFFF : c == '\t' || c == '\n' || c == '\r';
+    }
+    
+    private void writeJsonStrings(JsonGenerator json, List<String> values) throws IOException {
+        if (values == null) {
+            json.writeNull();
+            return;
+        }
+        json.writeStartArray();
+        for (String value : values) {
+            json.writeString(value);
+        }
+        json.writeEndArray();
+    }
+    
+    private void commitReportEvent(GeneratorEvents.ReportGenerated event, String format, String outputPath,
+                                   int totalSteps) {
+        if (event.shouldCommit()) {
+            event.format = format;
+            event.fileName = outputPath != null ? new File(outputPath).getName() : null;
+            event.stepCount = totalSteps;
+            event.bytes = outputPath != null ? new File(outputPath).length() : 0;
+            event.commit();
+        }
+    }
+    
+    private int countSteps(Map<String, List<FeatureStep>> allSteps) {
+        return allSteps.values().stream().mapToInt(List::size).sum();
+    }
+    
     private String getCurrentTimestamp() {
         return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
     }
     
-    private Map<String, Object> generateSummaryData(Map<String, List<FeatureStep>> allSteps,
-                                                  Map<String, List<StepDefinition>> generatedDefinitions,
-                                                  Map<FeatureStep, List<String>> duplicates) {
+    private Map<String, Object> generateSummaryData(int featureFiles, int totalSteps, int totalDefinitions,
+                                                  int duplicateSteps) {
         Map<String, Object> summary = new HashMap<>();
         
-        int totalSteps = allSteps.values().stream().mapToInt(List::size).sum();
-        int totalDefinitions = generatedDefinitions.values().stream().mapToInt(List::size).sum();
-        
-        summary.put("Total Feature Files", allSteps.size());
+        summary.put("Total Feature Files", featureFiles);
         summary.put("Total Steps", totalSteps);
         summary.put("Generated Definitions", totalDefinitions);
-        summary.put("Duplicate Steps", duplicates.size());
-        summary.put("Unique Steps", totalSteps - duplicates.size());
+        summary.put("Duplicate Steps", duplicateSteps);
+        summary.put("Unique Steps", totalSteps - duplicateSteps);
         
-        return summary;
+        // Keep the order the reports have always listed the figures in
+        return new LinkedHashMap<>(summary);
     }
     
-    private String generateSummaryHtml(Map<String, List<FeatureStep>> allSteps,
-                                     Map<String, List<StepDefinition>> generatedDefinitions,
-                                     Map<FeatureStep, List<String>> duplicates) {
-        Map<String, Object> summary = generateSummaryData(allSteps, generatedDefinitions, duplicates);
-        
+    private String generateSummaryHtml(Map<String, Object> summary) {
         StringBuilder html = new StringBuilder();
         html.append("<table class=\"summary-table\">\n");
         for (Map.Entry<String, Object> entry : summary.entrySet()) {
@@ -239,17 +1055,16 @@ public class ReportGenerator {
         return html.toString();
     }
     
-    private String generateFeatureFilesHtml(Map<String, List<FeatureStep>> allSteps) {
+    private String generateFeatureFilesHtml(ReportModel model) {
         StringBuilder html = new StringBuilder();
         html.append("<table class=\"data-table\">\n");
         html.append("<tr><th>Feature File</th><th>Steps</th><th>Types</th></tr>\n");
         
-        for (Map.Entry<String, List<FeatureStep>> entry : allSteps.entrySet()) {
+        for (Map.Entry<String, List<FeatureStep>> entry : model.getAllSteps().entrySet()) {
             String fileName = entry.getKey();
             List<FeatureStep> steps = entry.getValue();
             
-            Map<String, Long> typeCounts = steps.stream()
-                .collect(java.util.stream.Collectors.groupingBy(FeatureStep::getStepType, java.util.stream.Collectors.counting()));
+            Map<String, Long> typeCounts = model.getTypeCountsByFile().get(fileName);
             
             html.append("<tr>");
             html.append("<td>").append(fileName).append("</td>");
@@ -273,7 +1088,7 @@ public class ReportGenerator {
             
             Set<String> classes = definitions.stream()
                 .map(StepDefinition::getClassName)
-                .collect(java.util.stream.Collectors.toSet());
+                .collect(Collectors.toSet());
             
             html.append("<tr>");
             html.append("<td>").append(stepType).append("</td>");
@@ -0,0 +1,519 @@
+package com.testautomation.agent.utils;
+
+import com.testautomation.agent.model.FeatureStep;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Index of every step occurrence, built in a single hashing pass over all parsed steps.
+ * Maps each canonical step (the first equal step seen) to the feature file of every
+ * occurrence, and groups the unique steps by step type. Duplicate detection, step
+ * organization, generation and reports all read from the same index.
+ */
+public class StepOccurrenceIndex {
+    private static final Logger logger = LoggerFactory.getLogger(StepOccurrenceIndex.class);
+
+    private final Map<String, List<FeatureStep>> allSteps;
+    private final Map<FeatureStep, List<String>> occurrences;
+    private final Map<String, List<FeatureStep>> stepsByType;
+    private final Map<FeatureStep, List<String>> duplicates;
+    private final int totalStepCount;
+
+    private StepOccurrenceIndex(Map<String, List<FeatureStep>> allSteps,
+                                Map<FeatureStep, List<String>> occurrences,
+                                int totalStepCount) {
+        this.allSteps = allSteps;
+        this.occurrences = occurrences;
+        this.totalStepCount = totalStepCount;
+
+        // Iterating the unique steps needs no further hashing of steps
+        this.stepsByType = new HashMap<>();
+        this.duplicates = new HashMap<>();
+        for (Map.Entry<FeatureStep, List<String>> entry : occurrences.entrySet()) {
+            FeatureStep step = entry.getKey();
+            stepsByType.computeIfAbsent(step.getStepType(), k -> new ArrayList<>()).add(step);
+            if (entry.getValue().size() > 1) {
+                duplicates.put(step, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Index parsed steps keyed by feature file
+     */
+    public static StepOccurrenceIndex build(Map<String, List<FeatureStep>> allSteps) {
+        Map<FeatureStep, List<String>> occurrences = new HashMap<>();
+        int totalStepCount = 0;
+
+        for (Map.Entry<String, List<FeatureStep>> entry : allSteps.entrySet()) {
+            String featureFile = entry.getKey();
+            for (FeatureStep step : entry.getValue()) {
+                List<String> featureFiles = occurrences.get(step);
+                if (featureFiles == null) {
+                    featureFiles = new ArrayList<>(2);
+                    occurrences.put(step, featureFiles);
+                }
+                featureFiles.add(featureFile);
+                totalStepCount++;
+            }
+        }
+
+        logger.debug("Indexed {} steps, {} unique", totalStepCount, occurrences.size());
+        return new StepOccurrenceIndex(allSteps, occurrences, totalStepCount);
+    }
+
+    /**
+     * Index the steps of a compact store. The index reads from the store and creates
+     * FeatureStep objects only when they are asked for, so the steps are not held in
+     * memory twice; its maps iterate in the same order as an index built from the same
+     * parsed steps.
+     */
+    public static StepOccurrenceIndex of(CompactStepStore store) {
+        return new CompactView(store);
+    }
+    
+    /**
+     * Index parsed steps using up to the given number of threads
+     */
+    public static StepOccurrenceIndex build(Map<String, List<FeatureStep>> allSteps, int threads) {
+        return build(allSteps, threads, null);
+    }
+
+    /**
+     * Index parsed steps using up to the given number of threads, reporting the work of
+     * the worker threads to a metrics recorder (may be null). Steps are partitioned by hash
+     * into shards that are indexed concurrently; the result is identical to the serial
+     * build, down to the iteration order of every map.
+     */
+    public static StepOccurrenceIndex build(Map<String, List<FeatureStep>> allSteps, int threads,
+                                            MetricsRecorder metricsRecorder) {
+        if (threads <= 1 || allSteps.size() < 2) {
+            return build(allSteps);
+        }
+        return new ShardedBuilder(allSteps, threads, metricsRecorder).build();
+    }
+
+    /**
+     * The indexed steps keyed by feature file
+     */
+    public Map<String, List<FeatureStep>> getAllSteps() { return allSteps; }
+
+    /**
+     * Canonical instance of every distinct step
+     */
+    public Set<FeatureStep> getUniqueSteps() {
+        return Collections.unmodifiableSet(occurrences.keySet());
+    }
+
+    /**
+     * Feature file of each occurrence of a step, or an empty list for unknown steps
+     */
+    public List<String> getOccurrences(FeatureStep step) {
+        List<String> featureFiles = occurrences.get(step);
+        return featureFiles != null ? featureFiles : Collections.emptyList();
+    }
+
+    /**
+     * Whether a step occurs more than once
+     */
+    public boolean isDuplicate(FeatureStep step) {
+        return getOccurrences(step).size() > 1;
+    }
+
+    /**
+     * Steps occurring more than once, with the feature file of each occurrence
+     */
+    public Map<FeatureStep, List<String>> getDuplicates() { return duplicates; }
+
+    /**
+     * Unique steps grouped by step type
+     */
+    public Map<String, List<FeatureStep>> getStepsByType() { return stepsByType; }
+
+    public int getTotalStepCount() { return totalStepCount; }
+
+    public int getUniqueStepCount() { return occurrences.size(); }
+
+    public int getFeatureFileCount() { return allSteps.size(); }
+
+    /**
+     * Index over a compact store. Unique steps are visited in the order a HashMap of the
+     * same steps would iterate them, so results match an index built from FeatureStep lists.
+     */
+    private static final class CompactView extends StepOccurrenceIndex {
+        private final CompactStepStore store;
+        private final int[] uniqueOrder;
+        private final Map<String, List<FeatureStep>> stepsByFile;
+        private Map<FeatureStep, List<String>> duplicates;
+
+        private CompactView(CompactStepStore store) {
+            super(Collections.emptyMap(), Collections.emptyMap(), 0);
+            this.store = store;
+            this.uniqueOrder = hashMapOrder(store);
+            this.stepsByFile = new FeatureFileView(store);
+        }
+
+        /**
+         * Step ids in the iteration order of a HashMap filled in order of first occurrence
+         */
+        private static int[] hashMapOrder(CompactStepStore store) {
+            Map<StepKey, Boolean> steps = new HashMap<>();
+            for (int stepId = 0; stepId < store.getStepCount(); stepId++) {
+                steps.put(new StepKey(stepId, store.getHash(stepId)), Boolean.TRUE);
+            }
+            int[] order = new int[steps.size()];
+            int i = 0;
+            for (StepKey key : steps.keySet()) {
+                order[i++] = key.stepId;
+            }
+            return order;
+        }
+
+        @Override
+        public Map<String, List<FeatureStep>> getAllSteps() { return stepsByFile; }
+
+        @Override
+        public Set<FeatureStep> getUniqueSteps() {
+            return new AbstractSet<FeatureStep>() {
+                @Override
+                public Iterator<FeatureStep> iterator() {
+                    return new Iterator<FeatureStep>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < uniqueOrder.length;
+                        }
+
+                        @Override
+                        public FeatureStep next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            return store.toFeatureStep(uniqueOrder[next++]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return uniqueOrder.length;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return o instanceof FeatureStep && store.find((FeatureStep) o) >= 0;
+                }
+            };
+        }
+
+        @Override
+        public List<String> getOccurrences(FeatureStep step) {
+            int stepId = store.find(step);
+            return stepId >= 0 ? store.getOccurrenceFiles(stepId) : Collections.emptyList();
+        }
+
+        @Override
+        public synchronized Map<FeatureStep, List<String>> getDuplicates() {
+            if (duplicates == null) {
+                duplicates = new HashMap<>();
+                for (int stepId : uniqueOrder) {
+                    if (store.getOccurrenceCount(stepId) > 1) {
+                        duplicates.put(store.toFeatureStep(stepId), store.getOccurrenceFiles(stepId));
+                    }
+                }
+            }
+            return duplicates;
+        }
+
+        /**
+         * Built on each call, so the FeatureStep objects are only held while they are used
+         */
+        @Override
+        public Map<String, List<FeatureStep>> getStepsByType() {
+            Map<String, List<FeatureStep>> stepsByType = new HashMap<>();
+            for (int stepId : uniqueOrder) {
+                stepsByType.computeIfAbsent(store.getStepTypeName(stepId), k -> new ArrayList<>())
+                    .add(store.toFeatureStep(stepId));
+            }
+            return stepsByType;
+        }
+
+        @Override
+        public int getTotalStepCount() { return (int) store.getTotalStepCount(); }
+
+        @Override
+        public int getUniqueStepCount() { return store.getStepCount(); }
+
+        @Override
+        public int getFeatureFileCount() { return store.getFeatureFileCount(); }
+    }
+
+    /**
+     * Stands in for a step in a HashMap: same hash code, equal only to itself
+     */
+    private static final class StepKey {
+        private final int stepId;
+        private final int hash;
+
+        private StepKey(int stepId, int hash) {
+            this.stepId = stepId;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StepKey && ((StepKey) o).stepId == stepId;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Read-only map of feature file name to its steps, over a compact store
+     */
+    private static final class FeatureFileView extends AbstractMap<String, List<FeatureStep>> {
+        private final CompactStepStore store;
+
+        private FeatureFileView(CompactStepStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public List<FeatureStep> get(Object key) {
+            int fileId = key instanceof String ? store.getFeatureFileId((String) key) : -1;
+            return fileId >= 0 ? store.getFeatureFileSteps(fileId) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && store.getFeatureFileId((String) key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return store.getFeatureFileCount();
+        }
+
+        @Override
+        public Set<Entry<String, List<FeatureStep>>> entrySet() {
+            return new AbstractSet<Entry<String, List<FeatureStep>>>() {
+                @Override
+                public Iterator<Entry<String, List<FeatureStep>>> iterator() {
+                    return new Iterator<Entry<String, List<FeatureStep>>>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < store.getFeatureFileCount();
+                        }
+
+                        @Override
+                        public Entry<String, List<FeatureStep>> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int fileId = next++;
+                            return new SimpleImmutableEntry<>(store.getFeatureFile(fileId), store.getFeatureFileSteps(fileId));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return store.getFeatureFileCount();
+                }
+            };
+        }
+    }
+
+    /**
+     * Builds the index in three steps: worker threads split contiguous chunks of feature files
+     * into per-shard lists of step positions, then index one shard each, and finally the
+     * shards are merged in order of first occurrence so the maps match the serial build.
+     */
+    private static final class ShardedBuilder {
+        private static final int SHARDS_PER_THREAD = 4;
+
+        private final Map<String, List<FeatureStep>> allSteps;
+        private final List<String> featureFiles;
+        private final List<List<FeatureStep>> stepLists;
+        private final int threads;
+        private final int shards;
+        private final MetricsRecorder metricsRecorder;
+
+        private ShardedBuilder(Map<String, List<FeatureStep>> allSteps, int threads, MetricsRecorder metricsRecorder) {
+            this.allSteps = allSteps;
+            this.featureFiles = new ArrayList<>(allSteps.size());
+            this.stepLists = new ArrayList<>(allSteps.size());
+            for (Map.Entry<String, List<FeatureStep>> entry : allSteps.entrySet()) {
+                featureFiles.add(entry.getKey());
+                stepLists.add(entry.getValue());
+            }
+            this.threads = threads;
+            this.shards = threads * SHARDS_PER_THREAD;
+            this.metricsRecorder = metricsRecorder;
+        }
+
+        private StepOccurrenceIndex build() {
+            int chunks = Math.min(threads, featureFiles.size());
+            PositionBuffer[][] partitions = new PositionBuffer[chunks][shards];
+            Occurrence[][] shardOccurrences = new Occurrence[shards][];
+
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Callable<Void>> partitionTasks = new ArrayList<>(chunks);
+                for (int chunk = 0; chunk < chunks; chunk++) {
+                    int from = (int) ((long) featureFiles.size() * chunk / chunks);
+                    int to = (int) ((long) featureFiles.size() * (chunk + 1) / chunks);
+                    PositionBuffer[] chunkPartitions = partitions[chunk];
+                    partitionTasks.add(worker(() -> partition(from, to, chunkPartitions)));
+                }
+                invokeAll(executor, partitionTasks);
+
+                List<Callable<Void>> shardTasks = new ArrayList<>(shards);
+                for (int shard = 0; shard < shards; shard++) {
+                    int shardIndex = shard;
+                    shardTasks.add(worker(() -> shardOccurrences[shardIndex] = indexShard(partitions, shardIndex)));
+                }
+                invokeAll(executor, shardTasks);
+            } finally {
+                executor.shutdownNow();
+            }
+
+            // Insert in order of first occurrence, as the serial build does
+            int uniqueCount = 0;
+            for (Occurrence[] occurrences : shardOccurrences) {
+                uniqueCount += occurrences.length;
+            }
+            Occurrence[] merged = new Occurrence[uniqueCount];
+            int offset = 0;
+            for (Occurrence[] occurrences : shardOccurrences) {
+                System.arraycopy(occurrences, 0, merged, offset, occurrences.length);
+                offset += occurrences.length;
+            }
+            Arrays.parallelSort(merged, Comparator.comparingLong(occurrence -> occurrence.firstPosition));
+
+            Map<FeatureStep, List<String>> occurrences = new HashMap<>();
+            int totalStepCount = 0;
+            for (Occurrence occurrence : merged) {
+                occurrences.put(occurrence.step, occurrence.featureFiles);
+                totalStepCount += occurrence.featureFiles.size();
+            }
+
+            logger.debug("Indexed {} steps, {} unique, in {} shards on {} threads",
+                totalStepCount, occurrences.size(), shards, threads);
+            return new StepOccurrenceIndex(allSteps, occurrences, totalStepCount);
+        }
+
+        /**
+         * Sort the positions of the steps of a chunk of feature files into shards
+         */
+        private void partition(int from, int to, PositionBuffer[] chunkPartitions) {
+            for (int shard = 0; shard < shards; shard++) {
+                chunkPartitions[shard] = new PositionBuffer();
+            }
+            for (int file = from; file < to; file++) {
+                List<FeatureStep> steps = stepLists.get(file);
+                for (int i = 0; i < steps.size(); i++) {
+                    chunkPartitions[shardOf(steps.get(i))].add((long) file << 32 | i);
+                }
+            }
+        }
+
+        /**
+         * Index the steps of one shard, visiting chunks and positions in order so the first
+         * occurrence of each step becomes its canonical instance
+         */
+        private Occurrence[] indexShard(PositionBuffer[][] partitions, int shard) {
+            Map<FeatureStep, Occurrence> shardIndex = new HashMap<>();
+            for (PositionBuffer[] chunkPartitions : partitions) {
+                PositionBuffer positions = chunkPartitions[shard];
+                for (int i = 0; i < positions.size; i++) {
+                    long position = positions.positions[i];
+                    int file = (int) (position >>> 32);
+                    FeatureStep step = stepLists.get(file).get((int) position);
+
+                    Occurrence occurrence = shardIndex.get(step);
+                    if (occurrence == null) {
+                        occurrence = new Occurrence(step, position);
+                        shardIndex.put(step, occurrence);
+                    }
+                    occurrence.featureFiles.add(featureFiles.get(file));
+                }
+            }
+            return shardIndex.values().toArray(new Occurrence[0]);
+        }
+
+        private int shardOf(FeatureStep step) {
+            int hash = step.hashCode();
+            return Math.floorMod(hash ^ (hash >>> 16), shards);
+        }
+
+        private Callable<Void> worker(Runnable work) {
+            return () -> {
+                MetricsRecorder.WorkerUsage usage = metricsRecorder != null ? metricsRecorder.startWorker() : null;
+                try {
+                    work.run();
+                } finally {
+                    if (usage != null) {
+                        usage.finish();
+                    }
+                }
+                return null;
+            };
+        }
+
+        private void invokeAll(ExecutorService executor, List<Callable<Void>> tasks) {
+            try {
+                for (Future<Void> future : executor.invokeAll(tasks)) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while indexing steps", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Error indexing steps", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Occurrences of one distinct step, with the position (file ordinal, step ordinal) of the first
+     */
+    private static final class Occurrence {
+        private final FeatureStep step;
+        private final long firstPosition;
+        private final List<String> featureFiles = new ArrayList<>(2);
+
+        private Occurrence(FeatureStep step, long firstPosition) {
+            this.step = step;
+            this.firstPosition = firstPosition;
+        }
+    }
+
+    /**
+     * Growable array of step positions
+     */
+    private static final class PositionBuffer {
+        private long[] positions = new long[64];
+        private int size;
+
+        private void add(long position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.testautomation.agent.utils;
+
+import com.testautomation.agent.model.StepParameter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extracts quoted strings and numbers from step text in a single left-to-right scan.
+ * Quoted strings follow the {@code "([^"]+)"} rule and numbers the {@code \b(\d+)\b} rule;
+ * numbers inside a quoted string belong to that string and are not reported separately.
+ */
+public class StepParameterExtractor {
+
+    /**
+     * Extract parameters in source order
+     */
+    public List<StepParameter> extract(String text) {
+        List<StepParameter> parameters = new ArrayList<>(4);
+        int length = text.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = text.charAt(i);
+
+            if (c == '"') {
+                int close = text.indexOf('"', i + 1);
+                if (close > i + 1) {
+                    parameters.add(new StepParameter(StepParameter.Type.QUOTED_STRING,
+                        text.substring(i + 1, close), i, close + 1));
+                    i = close + 1;
+                } else {
+                    i++;
+                }
+                continue;
+            }
+
+            if (isDigit(c)) {
+                int end = i + 1;
+                while (end < length && isDigit(text.charAt(end))) {
+                    end++;
+                }
+                boolean boundaryBefore = i == 0 || !isWordChar(text.charAt(i - 1));
+                boolean boundaryAfter = end == length || !isWordChar(text.charAt(end));
+                if (boundaryBefore && boundaryAfter) {
+                    parameters.add(new StepParameter(StepParameter.Type.NUMBER, text.substring(i, end), i, end));
+                }
+                i = end;
+                continue;
+            }
+
+            i++;
+        }
+
+        return parameters;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+}
@@ -0,0 +1,251 @@
+package com.testautomation.agent.utils;
+
+import com.testautomation.agent.config.AgentConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Classifies step text into a step type (WEB, API, MOBILE, COMMON) by keyword.
+ * All keywords are compiled into one Aho-Corasick automaton, so a step is classified
+ * in a single case-insensitive pass regardless of how many keywords are configured.
+ * When keywords of several types occur, the type configured first wins.
+ */
+public class StepTypeClassifier {
+    private static final Logger logger = LoggerFactory.getLogger(StepTypeClassifier.class);
+
+    public static final String DEFAULT_STEP_TYPE = "COMMON";
+    public static final String CONFIG_KEY = "stepTypeKeywords";
+    private static final String CONFIG_RESOURCE = "agent-config.yaml";
+
+    private static final int ASCII_LIMIT = 128;
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    /**
+     * Result of classifying a step: its type and the keyword that decided it
+     */
+    public static class Match {
+        private final String stepType;
+        private final String keyword;
+
+        Match(String stepType, String keyword) {
+            this.stepType = stepType;
+            this.keyword = keyword;
+        }
+
+        public String getStepType() { return stepType; }
+
+        /**
+         * Keyword that decided the type, or null when no keyword matched
+         */
+        public String getKeyword() { return keyword; }
+
+        @Override
+        public String toString() {
+            return stepType + (keyword != null ? " (" + keyword + ")" : "");
+        }
+    }
+
+    private static final Match DEFAULT_MATCH = new Match(DEFAULT_STEP_TYPE, null);
+
+    private final int[] asciiClasses;
+    private final Map<Character, Integer> otherClasses;
+    private final int alphabetSize;
+    private final int[][] transitions;
+    private final int[] statePriority;
+    private final Match[] stateMatch;
+
+    /**
+     * Build a classifier from keyword lists keyed by step type, in priority order
+     */
+    public StepTypeClassifier(Map<String, List<String>> keywordsByType) {
+        List<String> keywords = new ArrayList<>();
+        List<Integer> priorities = new ArrayList<>();
+        List<String> types = new ArrayList<>();
+
+        int priority = 0;
+        for (Map.Entry<String, List<String>> entry : keywordsByType.entrySet()) {
+            String stepType = entry.getKey().toUpperCase();
+            for (String keyword : entry.getValue()) {
+                if (keyword != null && !keyword.isEmpty()) {
+                    keywords.add(toLowerCase(keyword));
+                    priorities.add(priority);
+                    types.add(stepType);
+                }
+            }
+            priority++;
+        }
+
+        // Map each character used by a keyword to a column of the transition table
+        this.asciiClasses = new int[ASCII_LIMIT];
+        this.otherClasses = new HashMap<>();
+        int nextClass = 1;
+        for (String keyword : keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                if (charClass(c) == 0) {
+                    if (c < ASCII_LIMIT) {
+                        asciiClasses[c] = nextClass++;
+                    } else {
+                        otherClasses.put(c, nextClass++);
+                    }
+                }
+            }
+        }
+        this.alphabetSize = nextClass;
+
+        // Build the keyword trie
+        List<int[]> trie = new ArrayList<>();
+        List<Integer> outputPriority = new ArrayList<>();
+        List<Match> outputMatch = new ArrayList<>();
+        trie.add(new int[alphabetSize]);
+        outputPriority.add(NO_MATCH);
+        outputMatch.add(DEFAULT_MATCH);
+
+        for (int k = 0; k < keywords.size(); k++) {
+            String keyword = keywords.get(k);
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int column = charClass(keyword.charAt(i));
+                if (trie.get(state)[column] == 0) {
+                    trie.get(state)[column] = trie.size();
+                    trie.add(new int[alphabetSize]);
+                    outputPriority.add(NO_MATCH);
+                    outputMatch.add(DEFAULT_MATCH);
+                }
+                state = trie.get(state)[column];
+            }
+            if (priorities.get(k) < outputPriority.get(state)) {
+                outputPriority.set(state, priorities.get(k));
+                outputMatch.set(state, new Match(types.get(k), keyword));
+            }
+        }
+
+        // Turn the trie into a DFA: follow failure links so every state has a transition
+        // for every column, and inherit the best output along the failure chain
+        int stateCount = trie.size();
+        this.transitions = trie.toArray(new int[stateCount][]);
+        this.statePriority = new int[stateCount];
+        this.stateMatch = outputMatch.toArray(new Match[stateCount]);
+        for (int s = 0; s < stateCount; s++) {
+            statePriority[s] = outputPriority.get(s);
+        }
+
+        int[] failure = new int[stateCount];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int column = 1; column < alphabetSize; column++) {
+            int child = transitions[0][column];
+            if (child != 0) {
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int fallback = failure[state];
+            if (statePriority[fallback] < statePriority[state]) {
+                statePriority[state] = statePriority[fallback];
+                stateMatch[state] = stateMatch[fallback];
+            }
+            for (int column = 1; column < alphabetSize; column++) {
+                int child = transitions[state][column];
+                if (child != 0) {
+                    failure[child] = transitions[fallback][column];
+                    queue.add(child);
+                } else {
+                    transitions[state][column] = transitions[fallback][column];
+                }
+            }
+        }
+
+        logger.debug("Built step type classifier with {} keywords and {} states", keywords.size(), stateCount);
+    }
+
+    /**
+     * Classify step text
+     */
+    public Match classify(String text) {
+        if (text == null) {
+            return DEFAULT_MATCH;
+        }
+
+        int state = 0;
+        int bestPriority = NO_MATCH;
+        Match best = DEFAULT_MATCH;
+
+        for (int i = 0; i < text.length(); i++) {
+            state = transitions[state][charClass(Character.toLowerCase(text.charAt(i)))];
+            if (statePriority[state] < bestPriority) {
+                bestPriority = statePriority[state];
+                best = stateMatch[state];
+                if (bestPriority == 0) {
+                    break;
+                }
+            }
+        }
+
+        return best;
+    }
+
+    private int charClass(char c) {
+        if (c < ASCII_LIMIT) {
+            return asciiClasses[c];
+        }
+        Integer column = otherClasses.get(c);
+        return column != null ? column : 0;
+    }
+
+    private static String toLowerCase(String keyword) {
+        StringBuilder lower = new StringBuilder(keyword.length());
+        for (int i = 0; i < keyword.length(); i++) {
+            lower.append(Character.toLowerCase(keyword.charAt(i)));
+        }
+        return lower.toString();
+    }
+
+    /**
+     * Built-in keyword lists, used when the configuration does not define any
+     */
+    public static Map<String, List<String>> defaultKeywords() {
+        Map<String, List<String>> keywords = new LinkedHashMap<>();
+        keywords.put("API", Arrays.asList("api", "request", "response"));
+        keywords.put("MOBILE", Arrays.asList("mobile", "app", "device"));
+        keywords.put("WEB", Arrays.asList("page", "element", "click", "input", "verify", "navigate"));
+        return keywords;
+    }
+
+    /**
+     * Classifier built from the bundled agent-config.yaml
+     */
+    public static StepTypeClassifier getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    private static class DefaultHolder {
+        static final StepTypeClassifier INSTANCE = new StepTypeClassifier(loadConfiguredKeywords());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, List<String>> loadConfiguredKeywords() {
+        try {
+            Map<String, Object> config = new AgentConfig().loadFromClasspath(CONFIG_RESOURCE);
+            Object configured = config.get(CONFIG_KEY);
+            if (configured instanceof Map && !((Map<?, ?>) configured).isEmpty()) {
+                Map<String, List<String>> keywords = new LinkedHashMap<>();
+                for (Map.Entry<String, Object> entry : ((Map<String, Object>) configured).entrySet()) {
+                    List<String> values = new ArrayList<>();
+                    if (entry.getValue() instanceof Collection) {
+                        for (Object value : (Collection<Object>) entry.getValue()) {
+                            values.add(String.valueOf(value));
+                        }
+                    }
+                    keywords.put(entry.getKey(), values);
+                }
+                return keywords;
+            }
+        } catch (Exception e) {
+            logger.warn("Could not load step type keywords from {}, using defaults", CONFIG_RESOURCE, e);
+        }
+        return defaultKeywords();
+    }
+}